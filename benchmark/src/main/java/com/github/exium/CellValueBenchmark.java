@@ -0,0 +1,88 @@
+package com.github.exium;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of getting the value of each type of cell (the cells of "MasterData").
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CellValueBenchmark {
+
+    private Path dir;
+    private ExcelParser parser;
+    private Cell stringCell;
+    private Cell numericCell;
+    private Cell dateCell;
+    private Cell formulaCell;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("exium-bench");
+        ChecklistGenerator.initialize(dir.resolve("exium.log"));
+        Path checklist = dir.resolve("checklist.xlsx");
+        ChecklistGenerator.generate(checklist, 10, 10);
+        parser = new ExcelParser(checklist.toString(), dir.resolve("result.xlsx").toString(), 1);
+        if (!parser.openTestFile()) {
+            throw new IllegalStateException("can't open " + checklist);
+        }
+        Sheet master = parser.getWorkbook().getSheet("MasterData");
+        stringCell = master.getRow(0).getCell(0);
+        numericCell = master.getRow(1).getCell(0);
+        dateCell = master.getRow(2).getCell(0);
+        formulaCell = master.getRow(3).getCell(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        parser.terminate();
+        Files.walk(dir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public String string() {
+        return parser.getCellValue(stringCell);
+    }
+
+    @Benchmark
+    public String numeric() {
+        return parser.getCellValue(numericCell);
+    }
+
+    @Benchmark
+    public String numericZeroSuppress() {
+        return parser.getCellValue(numericCell, true);
+    }
+
+    @Benchmark
+    public String date() {
+        return parser.getCellValue(dateCell);
+    }
+
+    @Benchmark
+    public String formula() {
+        return parser.getCellValue(formulaCell);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.github.exium;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading a checklist (opening, named cells, test scenario and the whole sheet).
+ * The largest checklist (50,000 rows x 500 cases) needs a large heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgs = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ChecklistBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int rows;
+
+    @Param({"10", "500"})
+    int cases;
+
+    private Path dir;
+    private Path checklist;
+    private ExcelParser parser;
+    private Sheet sheet;
+    private int rowHeader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("exium-bench");
+        ChecklistGenerator.initialize(dir.resolve("exium.log"));
+        checklist = dir.resolve("checklist.xlsx");
+        ChecklistGenerator.generate(checklist, rows, cases);
+
+        // opened parser for the sheet benchmarks
+        parser = new ExcelParser(checklist.toString(), dir.resolve("opened.xlsx").toString(), 1);
+        if (!parser.openTestFile()) {
+            throw new IllegalStateException("can't open " + checklist);
+        }
+        sheet = parser.getWorkbook().getSheet("Benchmark");
+        ChecklistSheet cs = parser.readSheet(sheet);
+        if (cs == null) {
+            throw new IllegalStateException("invalid checklist " + checklist);
+        }
+        rowHeader = cs.getRowStart() - 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        parser.terminate();
+        Files.walk(dir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public boolean openTestFile() {
+        ExcelParser target = new ExcelParser(checklist.toString(), dir.resolve("result.xlsx").toString(), 1);
+        try {
+            return target.openTestFile();
+        } finally {
+            target.terminate();
+        }
+    }
+
+    @Benchmark
+    public boolean checkNamedCell() {
+        return parser.checkNamedCell(sheet, "CASENUMBER");
+    }
+
+    @Benchmark
+    public List<String[]> parseTestScenario() {
+        return parser.parseTestScenario(sheet, rowHeader);
+    }
+
+    @Benchmark
+    public ChecklistSheet readSheet() {
+        return parser.readSheet(sheet);
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.github.exium;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.TimeZone;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Generate checklists for benchmarks (the same contents for the same size, so results are comparable run to run).
+ * The scenario opens a browser, and repeats Input / Select / Wait / Log / Capture with string, numeric, date
+ * and formula values (waits are 0 ms, screenshots are saved to "shots" next to the checklist),
+ * and 30% of commands of each case are checked. The sheet "MasterData" has a cell of each type (A1-A4).
+ */
+final class ChecklistGenerator {
+
+    static final int ROW_CASE_HEADER = 3;      // row of "CaseNo" and headers (the next row is case numbers)
+    static final int OPEN_ROWS = 2;            // rows of "Open" at the start of the scenario
+
+    private ChecklistGenerator() {
+    }
+
+    /**
+     * Generate a checklist.
+     * @param file output file (.xlsx).
+     * @param rows number of scenario rows.
+     * @param cases number of cases.
+     * @throws Exception if the file can't be written.
+     */
+    static void generate(Path file, int rows, int cases) throws Exception {
+        SXSSFWorkbook wb = new SXSSFWorkbook(100);
+        try {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+            calendar.clear();
+            calendar.set(2018, Calendar.JANUARY, 1, 9, 0, 0);
+
+            // cells of each type (not a checklist)
+            Sheet master = wb.createSheet("MasterData");
+            master.createRow(0).createCell(0).setCellValue(" string value ");
+            master.createRow(1).createCell(0).setCellValue(12345);
+            Cell dateCell = master.createRow(2).createCell(0);
+            dateCell.setCellValue(calendar.getTime());
+            dateCell.setCellStyle(dateStyle);
+            master.createRow(3).createCell(0).setCellFormula("\"formula-\"&A2");
+
+            Sheet sheet = wb.createSheet("Benchmark");
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("ID");
+            row.createCell(1).setCellValue("BM-" + rows + "-" + cases);
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("TITLE");
+            row.createCell(1).setCellValue("Benchmark " + rows + " rows x " + cases + " cases");
+
+            // headers
+            row = sheet.createRow(ROW_CASE_HEADER);
+            row.createCell(0).setCellValue("No");
+            row.createCell(1).setCellValue("Command");
+            row.createCell(2).setCellValue("Parameter");
+            row.createCell(3).setCellValue("Value");
+            row.createCell(4).setCellValue("CaseNo");
+            row = sheet.createRow(ROW_CASE_HEADER + 1);
+            for (int c = 0; c < cases; c++) {
+                row.createCell(4 + c).setCellValue(c + 1);
+            }
+            createName(wb, "ID", "$B$1");
+            createName(wb, "TITLE", "$B$2");
+            createName(wb, "NO", "$A$" + (ROW_CASE_HEADER + 1));
+            createName(wb, "COMMAND", "$B$" + (ROW_CASE_HEADER + 1));
+            createName(wb, "PARAMETER", "$C$" + (ROW_CASE_HEADER + 1));
+            createName(wb, "VALUE", "$D$" + (ROW_CASE_HEADER + 1));
+            createName(wb, "CASENUMBER", "$E$" + (ROW_CASE_HEADER + 1));
+
+            // scenario (the first rows open a browser, and they are checked in all cases)
+            String shots = file.toAbsolutePath().resolveSibling("shots").toString() + File.separator;
+            for (int r = 0; r < rows; r++) {
+                int index = ROW_CASE_HEADER + 2 + r;
+                row = sheet.createRow(index);
+                row.createCell(0).setCellValue(r + 1);
+                if (r < OPEN_ROWS) {
+                    if (r == 0) {
+                        setRow(row, "Open", "browser", "chrome");
+                    } else {
+                        setRow(row, "", "url", "http://localhost/");
+                    }
+                    for (int c = 0; c < cases; c++) {
+                        row.createCell(4 + c).setCellValue("Y");
+                    }
+                    continue;
+                }
+                switch (r % 10) {
+                    case 0:
+                        setRow(row, "Input", "by_id", "name" + r);
+                        break;
+                    case 1:
+                        // formula (string)
+                        setRow(row, "", "text", null);
+                        row.createCell(3).setCellFormula("\"text-\"&A" + (index + 1));
+                        break;
+                    case 2:
+                        setRow(row, "Select", "by_name", "pref");
+                        break;
+                    case 3:
+                        setRow(row, "", "text", "東京都");
+                        break;
+                    case 4:
+                        // numeric
+                        setRow(row, "Wait", "milliseconds", null);
+                        row.createCell(3).setCellValue(0);
+                        break;
+                    case 5:
+                        setRow(row, "Log", "by_xpath", "//div[@id='main']/h1");
+                        break;
+                    case 6:
+                        setRow(row, "Capture", "filename", shots + "<ID>_<CASENO>_<DATE>.png");
+                        break;
+                    case 7:
+                        // date
+                        setRow(row, "", "date", null);
+                        Cell cell = row.createCell(3);
+                        cell.setCellValue(calendar.getTime());
+                        cell.setCellStyle(dateStyle);
+                        break;
+                    case 8:
+                        setRow(row, "Click", "by_class", "submit");
+                        break;
+                    default:
+                        // formula (numeric)
+                        setRow(row, "Wait", "milliseconds", null);
+                        row.createCell(3).setCellFormula("A" + (index + 1) + "*0");
+                        break;
+                }
+                // parameter rows are checked with the command row
+                int head = ((r % 10 == 1) || (r % 10 == 3) || (r % 10 == 7)) ? r - 1 : r;
+                for (int c = 0; c < cases; c++) {
+                    if (((head * 31 + c * 17) % 10) < 3) {
+                        row.createCell(4 + c).setCellValue(((r + c) % 2 == 0) ? "Y" : "●");
+                    }
+                }
+            }
+
+            try (OutputStream out = Files.newOutputStream(file)) {
+                wb.write(out);
+            }
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    /**
+     * Initialize common objects of Exium (once). Logs are written to the file.
+     * @param logFile log file.
+     */
+    static synchronized void initialize(Path logFile) {
+        if (Exium.conf != null) {
+            return;
+        }
+        Exium.rb = ResourceBundle.getBundle("Messages", Locale.JAPAN);
+        Exium.conf = new Configurator("Constants.properties");
+        Exium.logger = new Logger(logFile.toString());
+        Exium.metrics = new Metrics();
+    }
+
+    private static void setRow(Row row, String command, String parameter, String value) {
+        row.createCell(1).setCellValue(command);
+        row.createCell(2).setCellValue(parameter);
+        if (value != null) {
+            row.createCell(3).setCellValue(value);
+        }
+    }
+
+    private static void createName(SXSSFWorkbook wb, String name, String ref) {
+        Name target = wb.createName();
+        target.setNameName(name);
+        target.setRefersToFormula("Benchmark!" + ref);
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.github.exium;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End-to-end benchmark of the engine: run generated checklists by ExcelParser with StubWebDriver (no browsers),
+ * and report commands per second and allocated bytes per command.
+ * It can be used as a regression gate (the exit code is 1 if the result is worse than the limits).
+ * <pre>
+ * java -cp benchmarks.jar com.github.exium.EngineHarness [rows] [cases] [iterations] [--min-cps N] [--max-bytes N]
+ * </pre>
+ * The first iteration is a warm-up, and the others are measured.
+ */
+public class EngineHarness {
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int rows = 1000;
+        int cases = 10;
+        int iterations = 5;
+        double minCps = 0;
+        double maxBytes = 0;
+        int position = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--min-cps":
+                    minCps = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-bytes":
+                    maxBytes = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    int value = Integer.parseInt(args[i]);
+                    if (position == 0) {
+                        rows = value;
+                    } else if (position == 1) {
+                        cases = value;
+                    } else {
+                        iterations = value;
+                    }
+                    position++;
+                    break;
+            }
+        }
+
+        Path dir = Files.createTempDirectory("exium-engine");
+        try {
+            ChecklistGenerator.initialize(dir.resolve("exium.log"));
+            Path checklist = dir.resolve("checklist.xlsx");
+            ChecklistGenerator.generate(checklist, rows, cases);
+
+            long totalCommands = 0;
+            long totalNanos = 0;
+            long totalBytes = 0;
+            long totalCalls = 0;
+            for (int i = 0; i <= iterations; i++) {
+                Run run = run(checklist, dir.resolve("result-" + i + ".xlsx"));
+                System.out.println(String.format(Locale.ROOT, "%s %d: %d commands, %.1f commands/s, %.0f bytes/command, %.1f calls/command",
+                        (i == 0) ? "warmup" : "iteration", i, run.commands, run.commandsPerSecond(),
+                        run.bytesPerCommand(), (double)run.calls / Math.max(1, run.commands)));
+                if (i > 0) {
+                    totalCommands += run.commands;
+                    totalNanos += run.nanos;
+                    totalBytes += run.bytes;
+                    totalCalls += run.calls;
+                }
+            }
+            Exium.logger.close();
+
+            Run total = new Run(totalCommands, totalNanos, totalBytes, totalCalls);
+            double cps = total.commandsPerSecond();
+            double bytes = total.bytesPerCommand();
+            System.out.println(String.format(Locale.ROOT, "result (%d rows x %d cases): %.1f commands/s, %.0f bytes/command",
+                    rows, cases, cps, bytes));
+            boolean passed = true;
+            if ((minCps > 0) && (cps < minCps)) {
+                System.out.println(String.format(Locale.ROOT, "FAILED: %.1f commands/s < %.1f", cps, minCps));
+                passed = false;
+            }
+            if ((maxBytes > 0) && (bytes > maxBytes)) {
+                System.out.println(String.format(Locale.ROOT, "FAILED: %.0f bytes/command > %.0f", bytes, maxBytes));
+                passed = false;
+            }
+            if (!passed) {
+                System.exit(1);
+            }
+        } finally {
+            Files.walk(dir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Run the checklist (open, execute, and terminate).
+     * Commands are counted by the metrics, and allocation is the sum of all threads alive at the end.
+     */
+    private static Run run(Path checklist, Path result) {
+        StubDriverFactory factory = new StubDriverFactory();
+        long commands = Exium.metrics.getCount("command");
+        Map<Long, Long> allocated = allocatedBytes();
+        long start = System.nanoTime();
+
+        ExcelParser parser = new ExcelParser(checklist.toString(), result.toString(), 1, factory);
+        try {
+            if (!parser.openTestFile() || !parser.execute()) {
+                throw new IllegalStateException("can't run " + checklist);
+            }
+        } finally {
+            parser.terminate();
+        }
+
+        long nanos = System.nanoTime() - start;
+        long bytes = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytes().entrySet()) {
+            bytes += entry.getValue() - allocated.getOrDefault(entry.getKey(), 0L);
+        }
+        return new Run(Exium.metrics.getCount("command") - commands, nanos, bytes, factory.getCalls());
+    }
+
+    private static Map<Long, Long> allocatedBytes() {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Result of a run.
+     */
+    private static final class Run {
+        private final long commands;
+        private final long nanos;
+        private final long bytes;
+        private final long calls;
+
+        Run(long commands, long nanos, long bytes, long calls) {
+            this.commands = commands;
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.calls = calls;
+        }
+
+        double commandsPerSecond() {
+            return commands * 1e9 / Math.max(1, nanos);
+        }
+
+        double bytesPerCommand() {
+            return (double)bytes / Math.max(1, commands);
+        }
+    }
+
+}
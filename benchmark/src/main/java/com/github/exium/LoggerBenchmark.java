@@ -0,0 +1,74 @@
+package com.github.exium;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the throughput of Logger.log (to the log file).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+
+    private Path dir;
+    private Logger logger;
+    private Exception exception = new IllegalStateException("benchmark");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("exium-bench");
+        ChecklistGenerator.initialize(dir.resolve("exium.log"));
+        logger = Exium.logger;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        logger.close();
+        Files.walk(dir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public void log() {
+        logger.log("message.info.start_case", "001");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logParallel() {
+        logger.log("message.info.start_case", "001");
+    }
+
+    @Benchmark
+    public void logWithException() {
+        logger.log("message.warn.command_exec_fail", exception, "001", "click");
+    }
+
+    @Benchmark
+    public void logGroup() {
+        logger.startGroup();
+        for (int i = 0; i < 10; i++) {
+            logger.log("message.info.start_case", "001");
+        }
+        logger.endGroup();
+    }
+
+}
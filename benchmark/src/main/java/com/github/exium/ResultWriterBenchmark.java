@@ -0,0 +1,81 @@
+package com.github.exium;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of saving the result file (the results of a case are applied and the workbook is written).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgs = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ResultWriterBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int rows;
+
+    @Param({"10", "500"})
+    int cases;
+
+    private Path dir;
+    private Workbook wb;
+    private ResultWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("exium-bench");
+        ChecklistGenerator.initialize(dir.resolve("exium.log"));
+        Path checklist = dir.resolve("checklist.xlsx");
+        ChecklistGenerator.generate(checklist, rows, cases);
+        try (InputStream in = Files.newInputStream(checklist)) {
+            wb = WorkbookFactory.create(in);
+        }
+        writer = new ResultWriter(wb, dir.resolve("result.xlsx").toString());
+        if (!writer.open()) {
+            throw new IllegalStateException("can't create the result file");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void recordCase() {
+        // results of the first case
+        int rowStart = ChecklistGenerator.ROW_CASE_HEADER + 2;
+        for (int r = 0; r < rows; r++) {
+            writer.record("Benchmark", rowStart + r, 4, (r % 2 == 0) ? "OK" : "NG");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        writer.close();
+        wb.close();
+        Files.walk(dir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public boolean save() {
+        return writer.write();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.github.exium;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Factory of StubWebDriver (any browser), to run checklists without browsers.
+ * It can also be specified by "webdriver.common.driver_factory = com.github.exium.StubDriverFactory".
+ */
+class StubDriverFactory extends DriverFactory {
+
+    private final AtomicLong calls = new AtomicLong();
+
+    @Override
+    WebDriver create(SessionKey key, String strCaseNum) {
+        return new StubWebDriver(calls);
+    }
+
+    /**
+     * Get the number of calls to the drivers created by this factory.
+     * @return number of calls.
+     */
+    long getCalls() {
+        return calls.get();
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.github.exium;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Web driver without a browser (in-memory DOM), to measure the overhead of Exium itself.
+ * Any locator finds one element (created at the first lookup and kept until the next page):
+ * "select" for locators containing "pref" or "select" (options: 東京都, 大阪府), "a" for by_link_text,
+ * and "input" for others. Scripts of Exium return the results as a loaded page, and other scripts return null.
+ */
+class StubWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+
+    private static final byte[] SCREENSHOT = createScreenshot();
+
+    private final AtomicLong calls;     // number of calls (as round trips to the browser)
+    private Map<String, StubWebElement> elements = new HashMap<>();
+    private String url = "about:blank";
+    private long timeOrigin = System.currentTimeMillis();
+    private boolean closed = false;
+
+    /**
+     * Constructor of StubWebDriver class.
+     * @param calls counter of calls (shared by drivers of the factory).
+     */
+    StubWebDriver(AtomicLong calls) {
+        this.calls = calls;
+    }
+
+    void count() {
+        calls.incrementAndGet();
+    }
+
+    @Override
+    public void get(String url) {
+        count();
+        this.url = url;
+        this.timeOrigin = System.currentTimeMillis();
+        elements = new HashMap<>();
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        count();
+        return url;
+    }
+
+    @Override
+    public String getTitle() {
+        count();
+        return "Stub";
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        count();
+        String locator = by.toString();
+        int colon = locator.indexOf(": ");
+        String type = (colon > 0) ? locator.substring(0, colon) : locator;
+        String value = (colon > 0) ? locator.substring(colon + 2) : "";
+        return Collections.singletonList(element(type, value));
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return findElements(by).get(0);
+    }
+
+    @Override
+    public String getPageSource() {
+        count();
+        return "<html><body></body></html>";
+    }
+
+    @Override
+    public void close() {
+        count();
+        closed = true;
+    }
+
+    @Override
+    public void quit() {
+        count();
+        closed = true;
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        count();
+        return new LinkedHashSet<>(Collections.singletonList(getWindowHandle()));
+    }
+
+    @Override
+    public String getWindowHandle() {
+        if (closed) {
+            throw new NoSuchElementException("closed");
+        }
+        return "stub";
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return stub(TargetLocator.class);
+    }
+
+    @Override
+    public Navigation navigate() {
+        return stub(Navigation.class);
+    }
+
+    @Override
+    public Options manage() {
+        return stub(Options.class);
+    }
+
+    /**
+     * Execute scripts of Exium (locator chain, page ready probe, connected check).
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object executeScript(String script, Object... args) {
+        count();
+        if (script.startsWith("return (function(chain)")) {
+            List<String[]> chain = (List<String[]>)args[0];
+            String[] last = chain.get(chain.size() - 1);
+            return new ArrayList<Object>(Collections.singletonList(element(last[0], last[1])));
+        }
+        if (script.contains("document.readyState")) {
+            return Arrays.asList(Boolean.TRUE, 0L, Boolean.TRUE, 60000L, 60000L);
+        }
+        if (script.contains("isConnected")) {
+            return Boolean.TRUE;
+        }
+        if (script.equals(PageMetrics.MEASURE_SCRIPT)) {
+            return Arrays.asList(url, 12.5, 40.0, 55.0, 48.0, 2048L, 3L, 10240L, (double)timeOrigin);
+        }
+        if (script.startsWith("var resolve")) {
+            // fast fill: not executed (executed one by one)
+            return new ArrayList<>();
+        }
+        return null;
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        return executeScript(script, args);
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        count();
+        return target.convertFromPngBytes(SCREENSHOT);
+    }
+
+    private StubWebElement element(String type, String value) {
+        String key = type + '\u0000' + value;
+        StubWebElement element = elements.get(key);
+        if (element == null) {
+            String lower = value.toLowerCase();
+            if (lower.contains("pref") || lower.contains("select")) {
+                element = new StubWebElement(this, "select").option("東京都").option("大阪府");
+            } else if (type.contains("link")) {
+                element = new StubWebElement(this, "a");
+            } else {
+                element = new StubWebElement(this, "input").attribute("type", "text");
+            }
+            elements.put(key, element);
+        }
+        return element;
+    }
+
+    /**
+     * Stub of nested interfaces (navigation, options, timeouts, window, target locator).
+     * Methods return this driver, the stub itself, a window size, or a default value.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type) {
+        return (T)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            count();
+            Class<?> returnType = method.getReturnType();
+            if (returnType == WebDriver.class) {
+                return this;
+            }
+            if (returnType.isInstance(proxy)) {
+                return proxy;
+            }
+            if (returnType.isInterface()) {
+                return stub(returnType);
+            }
+            if (returnType == Dimension.class) {
+                return new Dimension(1280, 800);
+            }
+            if (returnType == Point.class) {
+                return new Point(0, 0);
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == Set.class) {
+                return Collections.emptySet();
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            return null;
+        });
+    }
+
+    private static byte[] createScreenshot() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "png", out);
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.github.exium;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Element of the in-memory DOM of StubWebDriver.
+ * "select" elements have options, and other elements keep the typed value.
+ */
+class StubWebElement implements WebElement {
+
+    private final StubWebDriver driver;
+    private final String tagName;
+    private final Map<String, String> attributes = new HashMap<>();
+    private final List<StubWebElement> options = new ArrayList<>();
+    private final StringBuilder value = new StringBuilder();
+    private String text = "";
+    private boolean selected = false;
+
+    StubWebElement(StubWebDriver driver, String tagName) {
+        this.driver = driver;
+        this.tagName = tagName;
+    }
+
+    StubWebElement attribute(String name, String value) {
+        attributes.put(name, value);
+        return this;
+    }
+
+    StubWebElement option(String text) {
+        StubWebElement option = new StubWebElement(driver, "option");
+        option.text = text;
+        option.attributes.put("index", Integer.toString(options.size()));
+        options.add(option);
+        return this;
+    }
+
+    @Override
+    public void click() {
+        driver.count();
+        if (tagName.equals("option")) {
+            selected = true;
+        }
+    }
+
+    @Override
+    public void submit() {
+        driver.count();
+    }
+
+    @Override
+    public void sendKeys(CharSequence... keysToSend) {
+        driver.count();
+        for (CharSequence keys : keysToSend) {
+            value.append(keys);
+        }
+    }
+
+    @Override
+    public void clear() {
+        value.setLength(0);
+    }
+
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        if (name.equals("value")) {
+            return value.toString();
+        }
+        if (name.equals("index") || name.equals("multiple") || name.equals("type")) {
+            return attributes.get(name);
+        }
+        return attributes.getOrDefault(name, "");
+    }
+
+    @Override
+    public boolean isSelected() {
+        return selected;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Find elements in this element (only options are supported, used by Select).
+     */
+    @Override
+    public List<WebElement> findElements(By by) {
+        driver.count();
+        String locator = by.toString();
+        if (!locator.contains("option")) {
+            return Collections.emptyList();
+        }
+        List<WebElement> found = new ArrayList<>();
+        for (StubWebElement option : options) {
+            // ".//option[normalize-space(.) = "text"]" or all options
+            if (!locator.contains("normalize-space") || locator.contains("\"" + option.text + "\"")) {
+                found.add(option);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        List<WebElement> found = findElements(by);
+        if (found.isEmpty()) {
+            throw new NoSuchElementException(by.toString());
+        }
+        return found.get(0);
+    }
+
+    @Override
+    public boolean isDisplayed() {
+        return true;
+    }
+
+    @Override
+    public Point getLocation() {
+        return new Point(0, 0);
+    }
+
+    @Override
+    public Dimension getSize() {
+        return new Dimension(100, 20);
+    }
+
+    @Override
+    public Rectangle getRect() {
+        return new Rectangle(getLocation(), getSize());
+    }
+
+    @Override
+    public String getCssValue(String propertyName) {
+        return "";
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return driver.getScreenshotAs(target);
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.github.exium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of browser sessions keyed by browser, device and user agent.
+ * A released browser is reset (cookies, storage, windows and about:blank) and handed out again
+ * instead of quitting it. The pool is shared by all WebDriverControllers (thread safe).
+ */
+class BrowserPool {
+
+    private Logger logger;
+    private DriverFactory factory;
+    private boolean enabled;        // if false, browsers are always started and quit
+    private int minIdle;            // idle browsers kept for each key (started in background)
+    private int maxSize;            // max number of idle (and being started) browsers in the pool
+    private Map<SessionKey, Deque<WebDriver>> idle = new HashMap<>();
+    private Map<WebDriver, SessionKey> keys = new IdentityHashMap<>();     // browsers started by the pool
+    private Map<SessionKey, Integer> warming = new HashMap<>();           // browsers being started in background
+    private int idleCount = 0;
+    private int warmingCount = 0;   // browsers being started in background (all keys)
+    private ExecutorService warmer = null;
+    private boolean closed = false;
+
+    /**
+     * Constructor of BrowserPool class.
+     * @param factory factory of web drivers.
+     */
+    BrowserPool(DriverFactory factory) {
+        this.logger = Exium.logger;
+        this.factory = factory;
+        Configurator conf = Exium.conf;
+        enabled = conf.getBooleanProperty("webdriver.pool.enabled");
+        minIdle = enabled ? conf.getIntProperty("webdriver.pool.min_idle") : 0;
+        maxSize = enabled ? conf.getIntProperty("webdriver.pool.max_size") : 0;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get a browser for the key (an idle one if exists, else a new one).
+     * @param key browser, device and user agent.
+     * @param strCaseNum string value of case number (for logs).
+     * @return web driver (null if can't start the browser).
+     */
+    WebDriver borrow(SessionKey key, String strCaseNum) {
+        while (true) {
+            WebDriver driver;
+            synchronized (this) {
+                Deque<WebDriver> queue = idle.get(key);
+                driver = ((queue != null) && !queue.isEmpty()) ? queue.pollFirst() : null;
+                if (driver != null) {
+                    idleCount--;
+                }
+            }
+            if (driver == null) {
+                break;
+            }
+            // health check (the browser may be closed or timed out)
+            if (isAlive(driver)) {
+                replenish(key);
+                return driver;
+            }
+            logger.log("message.warn.pool_discard_browser", strCaseNum, key.toString());
+            quit(driver);
+        }
+
+        WebDriver driver = create(key, strCaseNum);
+        replenish(key);
+        return driver;
+    }
+
+    /**
+     * Get the key of a browser started by the pool.
+     * @param driver web driver.
+     * @return key (null if not started by the pool).
+     */
+    synchronized SessionKey getKey(WebDriver driver) {
+        return keys.get(driver);
+    }
+
+    /**
+     * Return a browser to the pool (it is quit if the pool is full or can't reset it).
+     * @param driver web driver.
+     */
+    void release(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        SessionKey key;
+        synchronized (this) {
+            key = keys.get(driver);
+        }
+        if (!enabled || (key == null) || closed || !reset(driver)) {
+            quit(driver);
+            return;
+        }
+        synchronized (this) {
+            if (!closed && (idleCount < maxSize)) {
+                idle.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(driver);
+                idleCount++;
+                return;
+            }
+        }
+        quit(driver);
+    }
+
+    /**
+     * Start browsers for the key in background (until the number of idle browsers reaches the count).
+     * The idle browsers and the browsers being started (all keys) don't exceed the max size.
+     * @param key browser, device and user agent.
+     * @param count number of idle browsers.
+     * @return true if the pool can start more browsers, false if full.
+     */
+    boolean prewarm(SessionKey key, int count) {
+        if (!enabled) {
+            return false;
+        }
+        int start;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            Deque<WebDriver> queue = idle.get(key);
+            int current = ((queue != null) ? queue.size() : 0) + warming.getOrDefault(key, 0);
+            start = Math.min(count - current, maxSize - idleCount - warmingCount);
+            if (start <= 0) {
+                return idleCount + warmingCount < maxSize;
+            }
+            warming.put(key, warming.getOrDefault(key, 0) + start);
+            warmingCount += start;
+            if (warmer == null) {
+                warmer = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "BrowserPool-warmer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            for (int i = 0; i < start; i++) {
+                warmer.submit(() -> {
+                    // note: errors are reported by "Open" command, so the logs of starting are discarded.
+                    long begin = System.currentTimeMillis();
+                    logger.startGroup();
+                    WebDriver driver = create(key, "-");
+                    logger.leaveGroup();
+                    if (driver != null) {
+                        logger.log("message.info.browser_warmed", key.toString(),
+                                Long.toString(System.currentTimeMillis() - begin));
+                    }
+                    release(driver);
+                    // note: counted until added to the idle browsers, so the pool doesn't start more browsers.
+                    synchronized (this) {
+                        warming.put(key, warming.get(key) - 1);
+                        warmingCount--;
+                    }
+                });
+            }
+            return idleCount + warmingCount < maxSize;
+        }
+    }
+
+    /**
+     * Quit all idle browsers and stop starting browsers.
+     */
+    void close() {
+        List<WebDriver> list = new ArrayList<>();
+        ExecutorService executor;
+        synchronized (this) {
+            closed = true;
+            for (Deque<WebDriver> queue : idle.values()) {
+                list.addAll(queue);
+            }
+            idle.clear();
+            idleCount = 0;
+            executor = warmer;
+        }
+        if (executor != null) {
+            // cancel waiting starts, and wait for the browser being started (it is quit by release())
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(Exium.conf.getIntProperty("webdriver.common.timeout"), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (WebDriver driver : list) {
+            quit(driver);
+        }
+    }
+
+    /**
+     * Keep idle browsers of the key (min idle).
+     * @param key browser, device and user agent.
+     */
+    private void replenish(SessionKey key) {
+        if (minIdle > 0) {
+            prewarm(key, minIdle);
+        }
+    }
+
+    /**
+     * Start a browser.
+     * @param key browser, device and user agent.
+     * @param strCaseNum string value of case number (for logs).
+     * @return web driver (null if can't start the browser).
+     */
+    private WebDriver create(SessionKey key, String strCaseNum) {
+        WebDriver driver = factory.create(key, strCaseNum);
+        if (driver != null) {
+            synchronized (this) {
+                keys.put(driver, key);
+            }
+        }
+        return driver;
+    }
+
+    /**
+     * Whether the browser is available or not.
+     * @param driver web driver.
+     * @return true: available, false: closed or no response
+     */
+    private boolean isAlive(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reset the browser for next use (clear cookies and storage, close other windows and open about:blank).
+     * @param driver web driver.
+     * @return true: success, false: error (the browser can't be reused)
+     */
+    private boolean reset(WebDriver driver) {
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (int i = handles.size() - 1; i >= 0; i--) {
+                driver.switchTo().window(handles.get(i));
+                if (driver instanceof JavascriptExecutor) {
+                    try {
+                        ((JavascriptExecutor)driver).executeScript(
+                                "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+                    } catch (Exception ignore) {
+                        // ex. about:blank, data: URL
+                    }
+                }
+                driver.manage().deleteAllCookies();
+                if (i > 0) {
+                    driver.close();
+                }
+            }
+            driver.switchTo().window(handles.get(0));
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quit the browser.
+     * @param driver web driver.
+     */
+    private void quit(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        synchronized (this) {
+            keys.remove(driver);
+        }
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            // do nothing
+        }
+    }
+
+}
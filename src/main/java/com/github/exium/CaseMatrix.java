@@ -0,0 +1,95 @@
+package com.github.exium;
+
+import java.util.Arrays;
+
+/**
+ * Check marks of a sheet (command rows x cases) decoded into bitsets.
+ * The bits are stored in row-major order (index = row * number of cases + case).
+ */
+final class CaseMatrix {
+
+    private final int cases;
+    private long[] checked = new long[0];    // the row is executed in the case
+    private long[] japanese = new long[0];   // the check mark is Japanese type ("●")
+
+    /**
+     * Constructor of CaseMatrix class.
+     * @param cases number of cases.
+     */
+    CaseMatrix(int cases) {
+        this.cases = cases;
+    }
+
+    /**
+     * Decode a check mark and set it to the matrix.
+     * @param row index of the command row (0 is the first command).
+     * @param caseIndex index of the case (0 is the first case).
+     * @param check check mark string.
+     */
+    void set(int row, int caseIndex, String check) {
+        if ((caseIndex < 0) || (caseIndex >= cases)) {
+            return;
+        }
+        switch (check) {
+            case ("●"):
+                setBit(japanese, row, caseIndex);
+                setBit(checked, row, caseIndex);
+                break;
+            case ("Y"):
+            case ("y"):
+            case ("o"):
+            case ("O"):
+            case ("*"):
+            case ("✓"):
+            case ("☑"):
+            case ("✅"):
+                setBit(checked, row, caseIndex);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Whether the row is executed in the case or not.
+     * @param row index of the command row (0 is the first command).
+     * @param caseIndex index of the case (0 is the first case).
+     * @return true: checked, false: not checked
+     */
+    boolean isChecked(int row, int caseIndex) {
+        return getBit(checked, row, caseIndex);
+    }
+
+    /**
+     * Whether the check mark is Japanese type ("●") or not. The result is written by "○" or "×".
+     * @param row index of the command row (0 is the first command).
+     * @param caseIndex index of the case (0 is the first case).
+     * @return true: Japanese type, false: others
+     */
+    boolean isJapanese(int row, int caseIndex) {
+        return getBit(japanese, row, caseIndex);
+    }
+
+    private void setBit(long[] bits, int row, int caseIndex) {
+        long index = (long)row * cases + caseIndex;
+        int word = (int)(index >>> 6);
+        if (word >= bits.length) {
+            // grow (the number of rows is unknown while reading)
+            long[] grown = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+            if (bits == checked) {
+                checked = grown;
+            } else {
+                japanese = grown;
+            }
+            bits = grown;
+        }
+        bits[word] |= 1L << index;
+    }
+
+    private boolean getBit(long[] bits, int row, int caseIndex) {
+        long index = (long)row * cases + caseIndex;
+        int word = (int)(index >>> 6);
+        return (word < bits.length) && ((bits[word] & (1L << index)) != 0);
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.github.exium;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Split the cases of a test plan into chains which can be executed independently.
+ * Cases in a chain share browsers, so they are executed in order by one WebDriverController:
+ * <ul>
+ *     <li>A case which doesn't start with "Open" of a browser continues the browser of the previous case.</li>
+ *     <li>A case which executes "SwitchBrowser" uses the browser opened by the case of "opened_by".</li>
+ * </ul>
+ */
+class CaseScheduler {
+
+    private CaseScheduler() {
+    }
+
+    /**
+     * Get chains of cases.
+     * @param plan test plan of the sheet.
+     * @return chains (case indexes in order), ordered by the first case.
+     */
+    static List<int[]> chains(TestPlan plan) {
+        int count = plan.getCaseCount();
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+
+        // union dependent cases
+        for (int i = 0; i < count; i++) {
+            if ((i > 0) && !startsWithOpen(plan, i)) {
+                union(parent, i - 1, i);
+            }
+            for (String openedBy : getOpenedBy(plan, i)) {
+                for (int j = 0; j < count; j++) {
+                    if (plan.getCaseNumber(j).equals(openedBy)) {
+                        union(parent, j, i);
+                    }
+                }
+            }
+        }
+
+        // collect cases of each chain (the root is the first case, because it's always the smaller index)
+        List<int[]> chains = new ArrayList<>();
+        int[] chainIndex = new int[count];
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[find(parent, i)]++;
+        }
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                chainIndex[i] = chains.size();
+                chains.add(new int[sizes[i]]);
+                sizes[i] = 0;
+            }
+            chains.get(chainIndex[root])[sizes[root]++] = i;
+        }
+        return chains;
+    }
+
+    /**
+     * Get case numbers whose browsers are used by "SwitchBrowser" in any case.
+     * @param plan test plan of the sheet.
+     * @return case numbers.
+     */
+    static Set<String> switchTargets(TestPlan plan) {
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < plan.getCaseCount(); i++) {
+            set.addAll(getOpenedBy(plan, i));
+        }
+        return set;
+    }
+
+    /**
+     * Whether the first executed command of the case is "Open" of a browser or not.
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case.
+     * @return true: opens a new browser, false: uses the browser of the previous case.
+     */
+    private static boolean startsWithOpen(TestPlan plan, int caseIndex) {
+        CaseMatrix matrix = plan.getMatrix();
+        for (TestCommand command : plan.getCommands()) {
+            String browser = null;
+            for (int i = 0; i < command.getRowCount(); i++) {
+                if (!matrix.isChecked(command.getRowStart() + i, caseIndex)) {
+                    continue;
+                }
+                String[] param = command.getParameter(i);
+                browser = (browser != null) ? browser : "";
+                if (param[0].equalsIgnoreCase("browser")) {
+                    browser = param[1];
+                }
+            }
+            if (browser == null) {
+                // not executed in this case
+                continue;
+            }
+            // "Open" without browser re-opens the current browser
+            return (command.getType() == CommandType.OPEN) && !browser.equals("");
+        }
+        // no command
+        return true;
+    }
+
+    /**
+     * Get the case numbers of "opened_by" used by "SwitchBrowser" in the case.
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case.
+     * @return case numbers.
+     */
+    private static List<String> getOpenedBy(TestPlan plan, int caseIndex) {
+        CaseMatrix matrix = plan.getMatrix();
+        List<String> list = new ArrayList<>();
+        for (TestCommand command : plan.getCommands()) {
+            if (command.getType() != CommandType.SWITCH_BROWSER) {
+                continue;
+            }
+            for (int i = 0; i < command.getRowCount(); i++) {
+                String[] param = command.getParameter(i);
+                if (matrix.isChecked(command.getRowStart() + i, caseIndex) && param[0].equalsIgnoreCase("opened_by")) {
+                    list.add(param[1]);
+                }
+            }
+        }
+        return list;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        // keep the smaller index as the root
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.github.exium;
+
+import java.util.List;
+
+/**
+ * Contents of a checklist sheet which are needed to execute test cases
+ * (test scenario, case numbers and check marks of each case).
+ */
+class ChecklistSheet {
+
+    private String name;
+    private String strID;
+    private String strTitle;
+    private List<String[]> listRow;         // {command, parameter, value} of each row
+    private List<String> listCaseNumber;
+    private CaseMatrix matrix;      // check marks of each case
+    private int rowStart;           // row index of the first command
+    private int colStart;           // column index of the first case
+
+    /**
+     * Constructor of ChecklistSheet class.
+     * @param name sheet name.
+     * @param strID string value of ID.
+     * @param strTitle string value of Title.
+     * @param listRow list of command, parameter, value (result of parse).
+     * @param listCaseNumber list of case number strings.
+     * @param matrix check marks of each case.
+     * @param rowStart row index of the first command.
+     * @param colStart column index of the first case.
+     */
+    ChecklistSheet(String name, String strID, String strTitle, List<String[]> listRow,
+                   List<String> listCaseNumber, CaseMatrix matrix, int rowStart, int colStart) {
+        this.name = name;
+        this.strID = strID;
+        this.strTitle = strTitle;
+        this.listRow = listRow;
+        this.listCaseNumber = listCaseNumber;
+        this.matrix = matrix;
+        this.rowStart = rowStart;
+        this.colStart = colStart;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getID() {
+        return strID;
+    }
+
+    String getTitle() {
+        return strTitle;
+    }
+
+    List<String[]> getRows() {
+        return listRow;
+    }
+
+    List<String> getCaseNumbers() {
+        return listCaseNumber;
+    }
+
+    CaseMatrix getMatrix() {
+        return matrix;
+    }
+
+    int getRowStart() {
+        return rowStart;
+    }
+
+    int getColStart() {
+        return colStart;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.github.exium;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Commands of checklist and their handlers in WebDriverController.
+ */
+enum CommandType {
+
+    OPEN("open", (wdc, listParameter, strCaseNum, plan) -> wdc.executeOpen(listParameter, strCaseNum)),
+    SWITCH_BROWSER("switchbrowser", (wdc, listParameter, strCaseNum, plan) -> wdc.executeSwitchBrowser(listParameter, strCaseNum)),
+    INPUT("input", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "Input")),
+    SUBMIT("submit", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "Submit")),
+    CLICK("click", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "Click")),
+    SELECT("select", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "Select")),
+    SEND_KEY("sendkey", (wdc, listParameter, strCaseNum, plan) -> wdc.executeSendKeys(listParameter, strCaseNum)),
+    MOUSE_OVER("mouseover", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "MouserOver")),
+    BROWSER_OPERATION("browseroperation", (wdc, listParameter, strCaseNum, plan) -> wdc.executeBrowserOperation(listParameter, strCaseNum)),
+    LOG("log", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "Log")),
+    CAPTURE("capture", (wdc, listParameter, strCaseNum, plan) -> wdc.executeCapture(listParameter, strCaseNum, plan)),
+    COMPARE_TEXT("comparetext", (wdc, listParameter, strCaseNum, plan) -> wdc.executeToElement(listParameter, strCaseNum, "CompareText")),
+    WAIT("wait", (wdc, listParameter, strCaseNum, plan) -> wdc.executeWait(listParameter, strCaseNum)),
+    MEASURE("measure", (wdc, listParameter, strCaseNum, plan) -> wdc.executeMeasure(listParameter, strCaseNum, plan)),
+    UNKNOWN("", null);
+
+    private static final HashMap<String, CommandType> types = new HashMap<>();
+    static {
+        for (CommandType type : values()) {
+            if (type != UNKNOWN) {
+                types.put(type.name, type);
+            }
+        }
+    }
+
+    private String name;
+    private Handler handler;
+
+    CommandType(String name, Handler handler) {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    /**
+     * Get command type by the command name.
+     * @param name command name in lower case.
+     * @return command type (UNKNOWN if not found).
+     */
+    static CommandType of(String name) {
+        CommandType type = types.get(name);
+        return (type != null) ? type : UNKNOWN;
+    }
+
+    /**
+     * Execute the command.
+     * @param wdc web driver controller to execute.
+     * @param listParameter parameter list with its values.
+     * @param strCaseNum string value of case number.
+     * @param plan test plan of the sheet.
+     * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
+     */
+    boolean execute(WebDriverController wdc, List<String[]> listParameter, String strCaseNum, TestPlan plan) {
+        return handler.execute(wdc, listParameter, strCaseNum, plan);
+    }
+
+    /**
+     * Handler of a command
+     */
+    interface Handler {
+        boolean execute(WebDriverController wdc, List<String[]> listParameter, String strCaseNum, TestPlan plan);
+    }
+
+}
@@ -1,67 +1,176 @@
 package com.github.exium;
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Properties;
 import java.util.ResourceBundle;
 
+/**
+ * Configuration of Exium (immutable snapshot resolved at startup).
+ * The values of the properties file (argument of "-p" option) override the defaults (Constants.properties),
+ * and they are resolved once, so each call is a lookup of the map (a key which isn't defined in
+ * Constants.properties throws MissingResourceException, as ResourceBundle did). Devices are indexed by DeviceRegistry,
+ * and launch profiles and resource policies of browsers by the name.
+ */
 class Configurator {
 
-    private static ResourceBundle ext = null;
-    private static ResourceBundle def = null;
-    private Logger logger;
+    private final Map<String, String> values;
+    private final Map<String, Integer> numbers;
+    private final DeviceRegistry devices;
+    private final Map<String, LaunchProfile> profiles;
+    private final Map<String, ResourcePolicy> policies;
+    private final List<String[]> warnings = new ArrayList<>();     // message id and arguments (logged later)
 
     Configurator(String filename) {
 
-        logger = Exium.logger;
+        // default properties
+        ResourceBundle def = ResourceBundle.getBundle("Constants");
+        Map<String, String> map = new HashMap<>();
+        for (String key : def.keySet()) {
+            map.put(key, def.getString(key).trim());
+        }
+
+        // user properties (a file, or a resource in the class path)
+        if ((filename != null) && (!filename.equals(""))) {
+            Properties ext = loadProperties(filename);
+            if (ext != null) {
+                for (String key : ext.stringPropertyNames()) {
+                    String val = ext.getProperty(key).trim();
+                    if (!val.equals("")) {
+                        map.put(key, val);
+                    }
+                }
+            } else {
+                warnings.add(new String[]{"message.warn.cant_open_prop"});
+            }
+        }
+        values = Collections.unmodifiableMap(map);
 
-        if ((filename != null) && (filename.equals(""))) {
+        // typed values
+        Map<String, Integer> nums = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
             try {
-                ext = ResourceBundle.getBundle(filename);
-            } catch (Exception e) {
-                logger.log("message.warn.cant_open_prop");
+                nums.put(entry.getKey(), Integer.parseInt(entry.getValue()));
+            } catch (NumberFormatException nfe) {
+                ; // not a number
             }
         }
-        def = ResourceBundle.getBundle("Constants");
+        numbers = Collections.unmodifiableMap(nums);
 
+        devices = DeviceRegistry.load(values, warnings);
+        profiles = LaunchProfile.load(values, warnings);
+        policies = ResourcePolicy.load(values, warnings);
     }
 
+    /**
+     * Log the warnings of loading (the logger is created after this configuration).
+     */
+    void logWarnings() {
+        for (String[] warning : warnings) {
+            String[] args = new String[warning.length - 1];
+            System.arraycopy(warning, 1, args, 0, args.length);
+            Exium.logger.log(warning[0], args);
+        }
+        warnings.clear();
+    }
 
     String getStringProperty(String key) {
-        String val = null;
-        if (ext != null) {
-            try {
-                val = ext.getString(key).trim();
-            } catch (Exception e) {
-                ; // do nothing
-            }
+        String val = values.get(key);
+        if (val == null) {
+            throw new MissingResourceException("Can't find the property " + key, getClass().getName(), key);
         }
-        if ((val == null) || (val.equals(""))) {
-            val = def.getString(key).trim();
-        }
-
         return val;
     }
 
     int getIntProperty(String key) {
-        String val = null;
-        if (ext != null) {
-            try {
-                val = ext.getString(key).trim();
-            } catch (Exception e) {
-                ; // do nothing
-            }
+        Integer num = numbers.get(key);
+        if (num != null) {
+            return num;
         }
-        if ((val == null) || (val.equals(""))) {
-            val = def.getString(key).trim();
-        }
-        int num = 0;
+        String val = getStringProperty(key);
         if (!val.equals("")) {
-            try {
-                num = Integer.parseInt(val);
-            } catch (Exception e) {
-                logger.log("message.warn.cant_conv_prop_num", val);
-            }
+            Exium.logger.log("message.warn.cant_conv_prop_num", val);
+        }
+        return 0;
+    }
+
+    boolean getBooleanProperty(String key) {
+        return getStringProperty(key).equalsIgnoreCase("true");
+    }
+
+    /**
+     * Get the registry of devices ("browser.common.device.N" and the device file).
+     * @return device registry.
+     */
+    DeviceRegistry getDevices() {
+        return devices;
+    }
+
+    /**
+     * Get the launch profile.
+     * @param name name of the profile (ignore case).
+     * @return launch profile (null if not defined).
+     */
+    LaunchProfile getProfile(String name) {
+        return profiles.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the name of the launch profile for the device (the profile of the run if the device doesn't specify).
+     * @param device device (null if not specified).
+     * @return name of the profile.
+     */
+    String getProfileName(DeviceRegistry.Device device) {
+        if ((device != null) && !device.getProfile().equals("")) {
+            return device.getProfile();
         }
+        return getStringProperty("browser.common.profile");
+    }
+
+    /**
+     * Get the resource policy.
+     * @param name name of the policy (ignore case).
+     * @return resource policy (null if not defined).
+     */
+    ResourcePolicy getPolicy(String name) {
+        return policies.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the name of the resource policy for the device (the policy of the run if the device doesn't specify).
+     * @param device device (null if not specified).
+     * @return name of the policy.
+     */
+    String getPolicyName(DeviceRegistry.Device device) {
+        if ((device != null) && !device.getPolicy().equals("")) {
+            return device.getPolicy();
+        }
+        return getStringProperty("browser.common.resource_policy");
+    }
 
-        return num;
+    private static Properties loadProperties(String filename) {
+        Properties prop = new Properties();
+        try {
+            File file = new File(filename);
+            try (InputStream in = file.isFile() ? Files.newInputStream(file.toPath())
+                    : Configurator.class.getClassLoader().getResourceAsStream(filename)) {
+                if (in == null) {
+                    return null;
+                }
+                prop.load(in);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return prop;
     }
 
 }
@@ -0,0 +1,173 @@
+package com.github.exium;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Registry of devices (window size, user agent, device name of Chrome, launch profile and resource policy),
+ * indexed by the title (ignore case).
+ * Devices are defined by "browser.common.device.N.*" (any number of N) and the device file
+ * ("browser.common.device_file", CSV with the header "title,width,height,useragent,chrome,profile,policy").
+ * If the same title is defined twice, the device file takes priority.
+ */
+final class DeviceRegistry {
+
+    private final Map<String, Device> devices;
+
+    private DeviceRegistry(Map<String, Device> devices) {
+        this.devices = Collections.unmodifiableMap(devices);
+    }
+
+    /**
+     * Load devices from the properties and the device file.
+     * @param values values of properties.
+     * @param warnings warnings of loading (message id and arguments) are added.
+     * @return device registry.
+     */
+    static DeviceRegistry load(Map<String, String> values, List<String[]> warnings) {
+        Map<String, Device> devices = new HashMap<>();
+
+        // properties (in order of N, the first one is used if the same title)
+        String prefix = "browser.common.device.";
+        TreeMap<Integer, String> props = new TreeMap<>();
+        for (String key : values.keySet()) {
+            if (key.startsWith(prefix) && key.endsWith(".title")) {
+                String number = key.substring(prefix.length(), key.length() - ".title".length());
+                try {
+                    props.put(Integer.parseInt(number), prefix + number);
+                } catch (NumberFormatException nfe) {
+                    ; // not a device
+                }
+            }
+        }
+        for (String prop : props.values()) {
+            Device device = new Device(values.get(prop + ".title"), values.getOrDefault(prop + ".width", ""),
+                    values.getOrDefault(prop + ".height", ""), values.getOrDefault(prop + ".useragent", ""),
+                    values.getOrDefault(prop + ".chrome", ""), values.getOrDefault(prop + ".profile", ""),
+                    values.getOrDefault(prop + ".policy", ""), warnings);
+            if (!device.title.equals("")) {
+                devices.putIfAbsent(device.title.toLowerCase(Locale.ROOT), device);
+            }
+        }
+
+        // device file
+        String filename = values.getOrDefault("browser.common.device_file", "");
+        if (!filename.equals("")) {
+            try (Reader in = Files.newBufferedReader(new File(filename).toPath(), StandardCharsets.UTF_8)) {
+                for (CSVRecord record : CSVFormat.EXCEL.withFirstRecordAsHeader().withIgnoreHeaderCase()
+                        .withIgnoreSurroundingSpaces().parse(in)) {
+                    Device device = new Device(get(record, "title"), get(record, "width"), get(record, "height"),
+                            get(record, "useragent"), get(record, "chrome"), get(record, "profile"),
+                            get(record, "policy"), warnings);
+                    if (!device.title.equals("")) {
+                        devices.put(device.title.toLowerCase(Locale.ROOT), device);
+                    }
+                }
+            } catch (Exception e) {
+                warnings.add(new String[]{"message.warn.cant_read_device_file", filename});
+            }
+        }
+        return new DeviceRegistry(devices);
+    }
+
+    /**
+     * Find the device by the title.
+     * @param title title of the device (ignore case).
+     * @return device (null if not found).
+     */
+    Device find(String title) {
+        if (title.equals("")) {
+            return null;
+        }
+        return devices.get(title.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the number of devices.
+     * @return number of devices.
+     */
+    int size() {
+        return devices.size();
+    }
+
+    private static String get(CSVRecord record, String name) {
+        return (record.isMapped(name) && record.isSet(name)) ? record.get(name).trim() : "";
+    }
+
+    /**
+     * Definition of a device.
+     */
+    static final class Device {
+        private final String title;
+        private final int width;             // 0 if not specified
+        private final int height;            // 0 if not specified
+        private final String userAgent;
+        private final String deviceNameOnChrome;
+        private final String profile;        // "" if not specified
+        private final String policy;         // "" if not specified
+
+        private Device(String title, String width, String height, String userAgent, String deviceNameOnChrome,
+                       String profile, String policy, List<String[]> warnings) {
+            this.title = title.trim();
+            this.width = parse(width, warnings);
+            this.height = parse(height, warnings);
+            this.userAgent = userAgent;
+            this.deviceNameOnChrome = deviceNameOnChrome;
+            this.profile = profile;
+            this.policy = policy;
+        }
+
+        private static int parse(String value, List<String[]> warnings) {
+            if (value.equals("")) {
+                return 0;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException nfe) {
+                warnings.add(new String[]{"message.warn.cant_conv_prop_num", value});
+                return 0;
+            }
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        int getWidth() {
+            return width;
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        String getUserAgent() {
+            return userAgent;
+        }
+
+        String getDeviceNameOnChrome() {
+            return deviceNameOnChrome;
+        }
+
+        String getProfile() {
+            return profile;
+        }
+
+        String getPolicy() {
+            return policy;
+        }
+    }
+
+}
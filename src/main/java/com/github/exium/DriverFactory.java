@@ -0,0 +1,238 @@
+package com.github.exium;
+
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.ie.InternetExplorerDriver;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.safari.SafariDriver;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Create Selenium web drivers (start browsers).
+ * Another factory (a subclass in this package, ex. a stub driver for benchmarks) can be used
+ * by "webdriver.common.driver_factory".
+ */
+class DriverFactory {
+
+    private Logger logger;
+    private Configurator conf;
+
+    DriverFactory() {
+        logger = Exium.logger;
+        conf = Exium.conf;
+    }
+
+    /**
+     * Create the factory specified by "webdriver.common.driver_factory" (this class if not specified).
+     * @return driver factory.
+     */
+    static DriverFactory newInstance() {
+        String className = Exium.conf.getStringProperty("webdriver.common.driver_factory");
+        if (className.equals("")) {
+            return new DriverFactory();
+        }
+        try {
+            Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return (DriverFactory)constructor.newInstance();
+        } catch (Exception e) {
+            Exium.logger.log("message.warn.cant_load_driver_factory", e, className);
+            return new DriverFactory();
+        }
+    }
+
+    /**
+     * Create a web driver for the session key.
+     * @param key browser, device and user agent.
+     * @param strCaseNum string value of case number (for logs).
+     * @return web driver (null if can't create it).
+     */
+    WebDriver create(SessionKey key, String strCaseNum) {
+        WebDriver driver = null;
+        String userAgent = key.getUserAgent();
+        String deviceNameOnChrome = key.getDeviceNameOnChrome();
+        LaunchProfile profile = getProfile(key, strCaseNum);
+        ResourcePolicy policy = getPolicy(key, strCaseNum);
+        Set<String> processes = ProcessMemory.descendants();
+        long start = System.nanoTime();
+
+        // Open each browser
+        switch (key.getBrowser()) {
+            case "firefox" :
+            	String geckodriver ="";
+                try {
+					// get path of gecko driver and set to system properties
+					geckodriver = conf.getStringProperty("webdriver.firefox.driver");
+					if (isWindows()) {
+						if (!geckodriver.toLowerCase().contains(".exe")) {
+							geckodriver += ".exe";
+						}
+					}
+					System.setProperty("webdriver.gecko.driver", geckodriver);
+					FirefoxOptions options = new FirefoxOptions();
+					options.setCapability("marionette", true);
+					setPageLoadStrategy(options, key);
+					FirefoxProfile firefoxProfile = new FirefoxProfile();
+					boolean useProfile = profile.apply(options, firefoxProfile);
+					useProfile |= policy.apply(firefoxProfile);
+					if (!userAgent.equals("")) {
+						// apply userAgent
+						firefoxProfile.setPreference("general.useragent.override", userAgent);
+						useProfile = true;
+					}
+					if (useProfile) {
+						options.setProfile(firefoxProfile);
+					}
+					int retry_num = conf.getIntProperty("webdriver.common.retry");
+					for (int i = 0; i < retry_num + 1; i++) {
+						try {
+							driver = new FirefoxDriver(options);
+							break;
+						} catch (SessionNotCreatedException snce) {
+							// note: firefox driver can't open multiple windows so need wait for previous session closed.
+							int retry_interval = conf.getIntProperty("webdriver.common.retry_interval");
+							logger.log("message.warn.session_not_closed", strCaseNum, "Open", Integer.toString(i + 1) + "/" + Integer.toString(retry_num), Integer.toString(retry_interval));
+							Thread.sleep(retry_interval);
+						}
+					}
+				} catch (Exception e) {
+                    logger.log("message.warn.cant_init_firefox", e, strCaseNum, "Open", geckodriver);
+                    return null;
+                }
+                break;
+            case "ie" :
+                // note: don't apply userAgent even if user defined
+                try {
+                    driver = new InternetExplorerDriver();
+                } catch (Exception e) {
+                    logger.log("message.warn.cant_init_ie", e, strCaseNum, "Open");
+                    return null;
+                }
+                break;
+            case "chrome" :
+                String chromedriver = "";
+                try {
+                    // get path of Chrome driver and set to system properties
+                    chromedriver = conf.getStringProperty("webdriver.chrome.driver");
+                    if (isWindows()) {
+                        if (!chromedriver.toLowerCase().contains(".exe")) {
+                            chromedriver += ".exe";
+                        }
+                    }
+                    System.setProperty("webdriver.chrome.driver", chromedriver);
+                    // if defined device name on Chrome, open Chrome with the device name (using mobile emulation)
+                    // if don't defined device name on Chrome, open Chrome and set userAgent (if defined)
+                    ChromeOptions options = new ChromeOptions();
+                    setPageLoadStrategy(options, key);
+                    if (!deviceNameOnChrome.equals("")) {
+                        Map<String, String> mobileEmulation = new HashMap<>();
+                        mobileEmulation.put("deviceName", deviceNameOnChrome);
+                        options.setExperimentalOption("mobileEmulation", mobileEmulation);
+                    } else if (!userAgent.equals("")) {
+                        options.addArguments("--user-agent=" +  userAgent);
+                    }
+                    profile.apply(options);
+                    policy.apply(options);
+                    driver = new ChromeDriver(options);
+                } catch (Exception e) {
+                    logger.log("message.warn.cant_init_chrome", e, strCaseNum, "Open", chromedriver);
+                    return null;
+                }
+                break;
+            case "safari" :
+                // note: don't apply userAgent even if user defined
+                try {
+                	int retry_num = conf.getIntProperty("webdriver.common.retry");
+                	for (int i = 0; i < retry_num + 1; i++) {
+                		try {
+							driver = new SafariDriver();
+							break;
+						} catch (SessionNotCreatedException snce) {
+                			// note: safari driver can't open multiple windows so need wait for previous session closed.
+                			int retry_interval = conf.getIntProperty("webdriver.common.retry_interval");
+							logger.log("message.warn.session_not_closed", strCaseNum, "Open", Integer.toString(i + 1) + "/" + Integer.toString(retry_num), Integer.toString(retry_interval));
+                			Thread.sleep(retry_interval);
+						}
+					}
+                } catch (Exception e) {
+                    logger.log("message.warn.cant_init_safari", e, strCaseNum, "Open");
+                    return null;
+                }
+                break;
+            default :
+                break;
+        }
+
+        if (driver != null) {
+            Exium.metrics.record("driver_startup", "browser", key.getBrowser(), start);
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            long memory = ProcessMemory.startedSince(processes);
+            logger.log("message.info.driver_startup", strCaseNum, key.toString(), profile.getName(),
+                    Long.toString(elapsed), (memory < 0) ? "-" : Long.toString(memory / (1024 * 1024)));
+        }
+        return driver;
+    }
+
+    /**
+     * Get the launch profile of the session (the default profile if not defined).
+     * @param key browser, device and profile.
+     * @param strCaseNum string value of case number (for logs).
+     * @return launch profile.
+     */
+    private LaunchProfile getProfile(SessionKey key, String strCaseNum) {
+        String name = key.getProfile().equals("") ? LaunchProfile.DEFAULT : key.getProfile();
+        LaunchProfile profile = conf.getProfile(name);
+        if (profile == null) {
+            logger.log("message.warn.unknown_profile", strCaseNum, "Open", name);
+            profile = conf.getProfile(LaunchProfile.DEFAULT);
+        }
+        return profile;
+    }
+
+    /**
+     * Get the resource policy of the session ("none" if not defined).
+     * @param key browser, device and policy.
+     * @param strCaseNum string value of case number (for logs).
+     * @return resource policy.
+     */
+    private ResourcePolicy getPolicy(SessionKey key, String strCaseNum) {
+        String name = key.getPolicy().equals("") ? ResourcePolicy.NONE : key.getPolicy();
+        ResourcePolicy policy = conf.getPolicy(name);
+        if (policy == null) {
+            logger.log("message.warn.unknown_policy", strCaseNum, "Open", name);
+            policy = conf.getPolicy(ResourcePolicy.NONE);
+        }
+        return policy;
+    }
+
+    /**
+     * Set the page load strategy of the session ("normal" is the default of browsers).
+     * @param options options of the browser.
+     * @param key browser and page load strategy.
+     */
+    private void setPageLoadStrategy(MutableCapabilities options, SessionKey key) {
+        String strategy = key.getPageLoadStrategy();
+        if (!strategy.equals("") && !strategy.equals("normal")) {
+            options.setCapability(CapabilityType.PAGE_LOAD_STRATEGY, strategy);
+        }
+    }
+
+    /**
+     * running on windows or not
+     * @return if true, runnning on windows.
+     */
+    private boolean isWindows() {
+        return System.getProperty("os.name").contains("Windows");
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.github.exium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of found elements in a case (locator chain -> elements).
+ * It is invalidated on navigation, and stale elements (removed from the page) aren't reused.
+ */
+class ElementCache {
+
+    // return false if any element is removed from the page (or the driver throws StaleElementReferenceException)
+    private static final String CONNECTED_SCRIPT =
+            "var elements = arguments[0];" +
+            "for (var i = 0; i < elements.length; i++) {" +
+            "  if (!elements[i].isConnected && !document.documentElement.contains(elements[i])) { return false; }" +
+            "}" +
+            "return true;";
+
+    private Map<String, List<WebElement>> cache = new HashMap<>();
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Get cached elements.
+     * @param key key of the locator chain.
+     * @param driver web driver (used for staleness check).
+     * @return elements (null if not cached or stale).
+     */
+    List<WebElement> get(String key, WebDriver driver) {
+        List<WebElement> elements = cache.get(key);
+        if ((elements != null) && !isStale(elements, driver)) {
+            hits++;
+            return elements;
+        }
+        cache.remove(key);
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache found elements.
+     * @param key key of the locator chain.
+     * @param elements found elements.
+     */
+    void put(String key, List<WebElement> elements) {
+        cache.put(key, elements);
+    }
+
+    /**
+     * Invalidate all cached elements (ex. navigation).
+     */
+    void invalidate() {
+        cache.clear();
+    }
+
+    int getHits() {
+        return hits;
+    }
+
+    int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Clear all cached elements and counts (for next case).
+     */
+    void reset() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Whether the elements are stale (removed from the page) or not.
+     * @param elements cached elements.
+     * @param driver web driver.
+     * @return true: stale, false: available
+     */
+    private boolean isStale(List<WebElement> elements, WebDriver driver) {
+        try {
+            if (driver instanceof JavascriptExecutor) {
+                return !Boolean.TRUE.equals(((JavascriptExecutor)driver).executeScript(CONNECTED_SCRIPT, elements));
+            }
+            for (WebElement element : elements) {
+                element.isEnabled();
+            }
+            return false;
+        } catch (Exception e) {
+            // StaleElementReferenceException, etc...
+            return true;
+        }
+    }
+
+}
@@ -2,20 +2,22 @@ package com.github.exium;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
  * Parse excel file and execute command
@@ -26,6 +28,7 @@ class ExcelParser {
     private String resultFilename;
     private FileInputStream in = null;
     private Workbook wb = null;
+    private FormulaCache formulas = null;
     private Logger logger;
     private Cell cellNumberHeader;
     private Cell cellCommandHeader;
@@ -34,18 +37,41 @@ class ExcelParser {
     private Cell cellCaseNumberHeader;
     private String strID;
     private String strTitle;
-    private WebDriverController wdc;
+    private int parallelSheets;
+    private ResultWriter writer;
+    private BrowserPool pool;
+    private ScreenshotWriter screenshots;
+    private PageMetrics pageMetrics;
+    private StreamingChecklistReader streamReader = null;
+    private ExecutorService executor = null;
+    private ThreadLocal<SheetRunner> runners;       // a runner (and its drivers) for each worker
 
     /**
      * Constructor of ExcelParse class.
      * @param testFilename checklist file name (argument of  "-c" option)
      * @param resultFilename result file name (argument of "-r" option)
+     * @param parallelSheets number of sheets executed in parallel (argument of "--parallel-sheets" option)
      */
-    ExcelParser(String testFilename, String resultFilename) {
+    ExcelParser(String testFilename, String resultFilename, int parallelSheets) {
+        this(testFilename, resultFilename, parallelSheets, DriverFactory.newInstance());
+    }
+
+    /**
+     * Constructor of ExcelParse class (with the factory of web drivers).
+     * @param testFilename checklist file name (argument of  "-c" option)
+     * @param resultFilename result file name (argument of "-r" option)
+     * @param parallelSheets number of sheets executed in parallel (argument of "--parallel-sheets" option)
+     * @param factory factory of web drivers.
+     */
+    ExcelParser(String testFilename, String resultFilename, int parallelSheets, DriverFactory factory) {
         this.testFilename = testFilename;
         this.resultFilename = resultFilename;
+        this.parallelSheets = parallelSheets;
         this.logger = Exium.logger;
-        wdc = new WebDriverController();
+        pool = new BrowserPool(factory);
+        screenshots = new ScreenshotWriter();
+        pageMetrics = new PageMetrics();
+        runners = ThreadLocal.withInitial(() -> new SheetRunner(writer, pool, screenshots, pageMetrics));
     }
 
     /**
@@ -60,34 +86,76 @@ class ExcelParser {
             return false;
         }
 
+        // start browsers in background while loading the workbook
+        long start = System.currentTimeMillis();
+        if (pool.isEnabled()) {
+            new WarmUp(testFilename, pool).start();
+        }
+
+        // streaming mode (the workbook isn't loaded, each sheet is read by SAX)
+        if (Exium.conf.getBooleanProperty("excel.common.streaming")) {
+            streamReader = new StreamingChecklistReader(testFilename);
+            if (!streamReader.open()) {
+                return false;
+            }
+            writer = new ResultWriter(testFilename, resultFilename);
+            long loaded = System.currentTimeMillis();
+            boolean rc = writer.open();
+            logStartupTiming(start, loaded);
+            return rc;
+        }
+
         // open workbook
-        try {
-			in = new FileInputStream(testFile);
-			wb = WorkbookFactory.create(in);
-        } catch (Exception e) {
-            // cannot open, invalid file type
-            logger.log("message.error.invalid_file", e, testFilename);
+        if (!openWorkbook(testFile)) {
             return false;
         }
 
-        // create result file
-        try {
-            FileOutputStream out = new FileOutputStream(resultFilename);
-            wb.write(out);
-            out.close();
-        } catch (Exception e) {
-            logger.log("message.error.cant_write_file", e, resultFilename);
+        // create result file (and start writing results in background)
+        long loaded = System.currentTimeMillis();
+        writer = new ResultWriter(wb, resultFilename);
+        if (!writer.open()) {
             return false;
         }
+        logStartupTiming(start, loaded);
 
         return true;
     }
 
+    /**
+     * Log the startup timing (loading the checklist, creating the result file).
+     * @param start start time of opening.
+     * @param loaded time of the checklist loaded.
+     */
+    private void logStartupTiming(long start, long loaded) {
+        logger.log("message.info.startup_timing", Long.toString(loaded - start),
+                Long.toString(System.currentTimeMillis() - loaded));
+    }
+
     /**
      * execute test cases by each sheet (without "MasterData" sheet).
      * @return true: success, false: An error preventing continuation occurred
      */
     boolean execute() {
+        // parallel mode (sheets are read in order, and executed by workers)
+        if (parallelSheets > 1) {
+            executor = Executors.newFixedThreadPool(parallelSheets);
+        }
+
+        // streaming mode (read each sheet by SAX)
+        if (streamReader != null) {
+            while (streamReader.nextSheet()) {
+                startSheet(streamReader.getSheetName());
+                ChecklistSheet cs = streamReader.read();
+                if (cs == null) {
+                    // skip this sheet (because of invalid format)
+                    skipSheet();
+                    continue;
+                }
+                executeSheet(cs);
+            }
+            return awaitSheets();
+        }
+
         // iterate by sheet
         Iterator<Sheet> sheets = wb.sheetIterator();
         while(sheets.hasNext()) {
@@ -97,73 +165,184 @@ class ExcelParser {
             if (sheet.getSheetName().equalsIgnoreCase("MasterData")) {
                 continue;
             }
-            logger.log("message.info.start_sheet", sheet.getSheetName());
+            startSheet(sheet.getSheetName());
 
-            // validation existing named cell
-            String tags[] = {"ID", "TITLE", "NO", "COMMAND", "PARAMETER", "VALUE", "CASENUMBER"};
-            boolean rc = true;
-            for (String tag: tags) {
-                rc &= checkNamedCell(sheet, tag);
+            // note: the workbook is written by ResultWriter in background, so lock it while reading.
+            ChecklistSheet cs;
+            synchronized (wb) {
+                cs = readSheet(sheet);
             }
-            if (!rc) {
+            if (cs == null) {
                 // skip this sheet (because of invalid format)
+                skipSheet();
                 continue;
             }
+            executeSheet(cs);
+        }
 
-            // checking for extended format check (need to align these named cells).
-            if (cellCommandHeader.getRow() != cellParameterHeader.getRow() ||
-                    cellCommandHeader.getRow() != cellValueHeader.getRow()) {
-                // invalid format(not aligned these rows) therefor skip this sheet
-                logger.log("message.error.invalid_rows");
-                continue;
+        return awaitSheets();
+    }
+
+    /**
+     * Open the workbook of the checklist and evaluate formulas (by one evaluator for the workbook).
+     * @param testFile checklist file.
+     * @return true: success, false: error(ex. can't open, invalid file type, etc...)
+     */
+    boolean openWorkbook(File testFile) {
+        try {
+			in = new FileInputStream(testFile);
+			wb = WorkbookFactory.create(in);
+        } catch (Exception e) {
+            // cannot open, invalid file type
+            logger.log("message.error.invalid_file", e, testFilename);
+            return false;
+        }
+
+        formulas = new FormulaCache(wb);
+        if (Exium.conf.getBooleanProperty("excel.common.pre_evaluate")) {
+            long begin = System.currentTimeMillis();
+            int count = formulas.preEvaluate();
+            logger.log("message.info.pre_evaluate", String.valueOf(count),
+                    String.valueOf(System.currentTimeMillis() - begin));
+        }
+        return true;
+    }
+
+    /**
+     * Start a sheet. In parallel mode, the logs of the sheet are kept together.
+     * @param sheetName name of the sheet.
+     */
+    private void startSheet(String sheetName) {
+        if (executor != null) {
+            logger.startGroup();
+        }
+        logger.log("message.info.start_sheet", sheetName);
+    }
+
+    /**
+     * Skip a sheet (because of invalid format).
+     */
+    private void skipSheet() {
+        if (executor != null) {
+            logger.endGroup();
+        }
+    }
+
+    /**
+     * execute test cases in a sheet (by a worker in parallel mode).
+     * @param cs contents of the sheet.
+     */
+    private void executeSheet(ChecklistSheet cs) {
+        if (executor == null) {
+            runners.get().run(cs);
+            return;
+        }
+
+        // hand over the logs of the sheet to the worker
+        Logger.LogGroup group = logger.leaveGroup();
+        executor.submit(() -> {
+            logger.joinGroup(group);
+            try {
+                runners.get().run(cs);
+            } catch (Exception e) {
+                logger.log("message.error.unexpected", e);
+            } finally {
+                logger.endGroup();
             }
+        });
+    }
 
-            // parse Test Scenario and get command list. (The reference cell is "CASENUMBER")
-            int rowHeader = cellCaseNumberHeader.getRowIndex() + 1;
-            List<HashMap> listCommand = parseTestScenario(sheet, rowHeader);
-
-            // execute test cases / iterate by case number
-            int col = cellCaseNumberHeader.getColumnIndex();
-            while(true) {
-                // terminate condition
-                Cell cellCaseNumber = getCell(sheet, rowHeader, col);
-                String strCaseNumber = getCellValue(cellCaseNumber, true);
-                if (strCaseNumber.equals("")) {
-                    // complete execute test case in this sheet
-                    break;
-                }
+    /**
+     * Wait for all sheets executed by workers.
+     * @return true: success, false: interrupted
+     */
+    private boolean awaitSheets() {
+        if (executor == null) {
+            return true;
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // wait for all workers
+            }
+        } catch (InterruptedException ie) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read contents of the sheet (named cells, test scenario, case numbers and check marks).
+     * @param sheet Target sheet.
+     * @return contents of the sheet (null if invalid format).
+     */
+    ChecklistSheet readSheet(Sheet sheet) {
+        // validation existing named cell
+        String tags[] = {"ID", "TITLE", "NO", "COMMAND", "PARAMETER", "VALUE", "CASENUMBER"};
+        boolean rc = true;
+        for (String tag: tags) {
+            rc &= checkNamedCell(sheet, tag);
+        }
+        if (!rc) {
+            return null;
+        }
+
+        // checking for extended format check (need to align these named cells).
+        if (cellCommandHeader.getRow() != cellParameterHeader.getRow() ||
+                cellCommandHeader.getRow() != cellValueHeader.getRow()) {
+            // invalid format(not aligned these rows) therefor skip this sheet
+            logger.log("message.error.invalid_rows");
+            return null;
+        }
 
-                // execute test case
-                logger.log("message.info.start_case", strCaseNumber);
-                executeTestCase(sheet, listCommand, rowHeader + 1, col, strCaseNumber);
-                wdc.terminateTestCase(strCaseNumber);
-                logger.log("message.info.complete_case", strCaseNumber);
+        // parse Test Scenario and get command list. (The reference cell is "CASENUMBER")
+        int rowHeader = cellCaseNumberHeader.getRowIndex() + 1;
+        List<String[]> listCommand = parseTestScenario(sheet, rowHeader);
 
-                // next column
-                col++;
+        // get case numbers
+        int colStart = cellCaseNumberHeader.getColumnIndex();
+        List<String> listCaseNumber = new ArrayList<>();
+        while(true) {
+            Cell cellCaseNumber = getCell(sheet, rowHeader, colStart + listCaseNumber.size());
+            String strCaseNumber = getCellValue(cellCaseNumber, true);
+            if (strCaseNumber.equals("")) {
+                break;
             }
+            listCaseNumber.add(strCaseNumber);
+        }
 
-            wdc.terminate();
-            logger.log("message.info.complete_sheet", sheet.getSheetName());
+        // get check marks of each case (decode once)
+        CaseMatrix matrix = new CaseMatrix(listCaseNumber.size());
+        for (int i = 0; i < listCommand.size(); i++) {
+            Row row = sheet.getRow(rowHeader + 1 + i);
+            if (row == null) {
+                continue;
+            }
+            for (int j = 0; j < listCaseNumber.size(); j++) {
+                Cell cell = row.getCell(colStart + j);
+                if (cell != null) {
+                    matrix.set(i, j, getCellValue(cell));
+                }
+            }
         }
 
-        return true;
+        return new ChecklistSheet(sheet.getSheetName(), strID, strTitle, listCommand, listCaseNumber, matrix,
+                rowHeader + 1, colStart);
     }
 
     /**
      * To parse test scenario (parse each commands, parameters, values).
      * @param sheet Target sheet.
      * @param rowHeader Row of header. Starting parse is from header + 1.
-     * @return list of command, parameter, value (commands and parameters are satisfied).
+     * @return list of command, parameter, value (blank if the cell is blank).
      */
-    private List<HashMap> parseTestScenario(Sheet sheet, int rowHeader) {
+    List<String[]> parseTestScenario(Sheet sheet, int rowHeader) {
 
         // initialize
         int row = rowHeader + 1;
-        List<HashMap> list = new ArrayList<HashMap>();
-        int numCommandID = 0;
-        String strCommand = "";
-        String strParameter = "";
+        List<String[]> list = new ArrayList<>();
 
         // parse scenario
         while(true) {
@@ -175,33 +354,12 @@ class ExcelParser {
                 break;
             }
 
-            // prepare HashMap to store Command, Parameter, Value, etc...
-            HashMap<String, String> map = new HashMap<String, String>();
-
-            // get command str
-            Cell cellCommand = getCell(sheet, row, cellCommandHeader.getColumnIndex());
-            String strCommandTmp = getCellValue(cellCommand);
-            if (!strCommandTmp.equals("")) {
-                strCommand = strCommandTmp;
-                numCommandID++;
-            }
-            map.put("COMMAND", strCommand.toLowerCase());
-            map.put("COMMAND_ID", String.valueOf(numCommandID));
-
-            // get parameter str
-            Cell cellParameter = getCell(sheet, row, cellParameterHeader.getColumnIndex());
-            String strParameterTmp = getCellValue(cellParameter);
-            if (!strParameterTmp.equals("")) {
-                strParameter = strParameterTmp;
-            }
-            map.put("PARAMETER", strParameter.toLowerCase());
-
-            // get value str
-            Cell cellValue = getCell(sheet, row, cellValueHeader.getColumnIndex());
-            String strValue = getCellValue(cellValue);
-            map.put("VALUE", strValue);
+            // get command, parameter, value str
+            String strCommand = getCellValue(getCell(sheet, row, cellCommandHeader.getColumnIndex()));
+            String strParameter = getCellValue(getCell(sheet, row, cellParameterHeader.getColumnIndex()));
+            String strValue = getCellValue(getCell(sheet, row, cellValueHeader.getColumnIndex()));
 
-            list.add(map);
+            list.add(new String[]{strCommand, strParameter, strValue});
             row++;
         }
 
@@ -209,162 +367,13 @@ class ExcelParser {
     }
 
 
-    /**
-     * Execute each command using checked parameter.
-     * @param sheet Target sheet
-     * @param listCommand Command list. It's result of parse.
-     * @param rowStart Row of the first command.
-     * @param col Target column.
-     * @param strCaseNum The string of the case number (related with the target column).
-     */
-    private void executeTestCase(Sheet sheet, List<HashMap> listCommand, int rowStart, int col, String strCaseNum) {
-
-        int cnt = 0;
-        String strCommand;
-        String strCommandId;
-        boolean rc = false;
-
-        // loop in test scenario (rows).
-        while (true) {
-            // terminate condition
-            if (cnt >= listCommand.size()) {
-                break;
-            }
-
-            // execute command
-            ArrayList<String[]> listCommandParameter = new ArrayList<>();
-            ArrayList<Cell> cells = new ArrayList<>();
-            while (true) { // loop in each command
-                //
-                HashMap command = listCommand.get(cnt);
-                strCommandId = (String)command.get("COMMAND_ID");
-                strCommand = (String)command.get("COMMAND");
-
-                // if command or command id is blank, skip this row
-                if ((strCommandId == null) || (strCommand == null)) {
-                    // skip this command (invalid case)
-                    strCommand = "";
-                    cnt++;
-                    break;
-                }
-
-                // read and create parameters and values to use
-                Cell cell = getCell(sheet, rowStart + cnt, col);
-                String check = getCellValue(cell);
-                switch (check) {
-                    case ("Y"):
-                    case ("y"):
-                    case ("o"):
-                    case ("O"):
-                    case ("*"):
-                    case ("●"):
-                    case ("✓"):
-                    case ("☑"):
-                    case ("✅"):
-                        String[] str = {(String)command.get("PARAMETER"), (String)command.get("VALUE")};
-                        listCommandParameter.add(str);
-                        cells.add(cell);
-                        break;
-                    default:
-                        break;
-                }
-                cnt++;
-
-                // terminate condition (1)
-                if (cnt == listCommand.size()) {
-                    // If end of the command list, goto terminate parent loop (execute last command)
-                    break;
-                }
-
-                // terminate condition (2)
-                HashMap mapNextCommand = listCommand.get(cnt);
-                String strNextCommandSeq = (String) mapNextCommand.get("COMMAND_ID");
-                if (!strCommandId.equals(strNextCommandSeq)) {
-                    // execute this command and goto next command
-                    break;
-                }
-            }
-            if (listCommandParameter.size() == 0) {
-                // not need execute command
-                continue;
-            }
-
-            // execute command
-            try {
-                switch (strCommand) {
-                    case "open":
-                        rc = wdc.executeOpen(listCommandParameter, strCaseNum);
-                        break;
-                    case "switchbrowser":
-                        rc = wdc.executeSwitchBrowser(listCommandParameter, strCaseNum);
-                        break;
-                    case "input":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "Input");
-                        break;
-                    case "submit":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "Submit");
-                        break;
-                    case "click":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "Click");
-                        break;
-                    case "select":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "Select");
-                        break;
-                    case "sendkey":
-                        rc = wdc.executeSendKeys(listCommandParameter, strCaseNum);
-                        break;
-                    case "mouseover":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "MouserOver");
-                        break;
-                    case "browseroperation":
-                        rc = wdc.executeBrowserOperation(listCommandParameter, strCaseNum);
-                        break;
-                    case "log":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "Log");
-                        break;
-                    case "capture":
-                        rc = wdc.executeCapture(listCommandParameter, strCaseNum, strID, strTitle);
-                        break;
-                    case "comparetext":
-                        rc = wdc.executeToElement(listCommandParameter, strCaseNum, "CompareText");
-                        break;
-                    case "wait":
-                        rc = wdc.executeWait(listCommandParameter, strCaseNum);
-                        break;
-                    default:
-                        // If unknown command, skip this command
-                        logger.log("message.warn.unknown_command", strCaseNum, strCommand);
-                        break;
-                }
-            } catch (Exception e) {
-                logger.log("message.warn.command_exec_fail", e, strCaseNum, strCommand);
-                rc = false;
-            }
-
-            // write the result to result file
-            for (Cell cell : cells) {
-                String check = getCellValue(cell);
-                switch (check) {
-                    case ("●"): // Japanese type
-                        cell.setCellValue(rc ? "○" : "×");
-                        break;
-                    default: // Others
-                        cell.setCellValue(rc ? "OK" : "NG");
-                        break;
-                }
-            }
-        }
-        // save the wb(workbook) to file
-        save();
-    }
-
     /**
      * Get cell value.
      * @param cell Target cell.
      * @param zeroSuppress Need to fill by "0" for Integer.
      * @return The value in string.
      */
-    private String getCellValue(Cell cell, boolean zeroSuppress) {
+    String getCellValue(Cell cell, boolean zeroSuppress) {
         String ret = "";
 
         // null check
@@ -397,9 +406,8 @@ class ExcelParser {
                 }
                 break;
             case FORMULA:
-                CreationHelper crateHelper = wb.getCreationHelper();
-                FormulaEvaluator evaluator = crateHelper.createFormulaEvaluator();
-                ret = getCellValue(evaluator.evaluateInCell(cell), zeroSuppress);
+                // the formula isn't replaced by the value (it remains in the result file)
+                ret = getFormulaValue(cell, formulas.evaluate(cell), zeroSuppress);
                 break;
             case _NONE:
             case BLANK:
@@ -413,12 +421,64 @@ class ExcelParser {
         return ret;
     }
 
+    /**
+     * Get evaluated value of formula cell.
+     * @param cell Target cell.
+     * @param value Evaluated value.
+     * @param zeroSuppress Need to fill by "0" for Integer.
+     * @return The value in string.
+     */
+    private String getFormulaValue(Cell cell, CellValue value, boolean zeroSuppress) {
+        if (value == null) {
+            return "";
+        }
+
+        // change getting function by result type.
+        switch(value.getCellTypeEnum()) {
+            case STRING:
+                String ret = value.getStringValue();
+                return (ret != null) ? ret.trim() : "";
+            case BOOLEAN:
+                return String.valueOf(value.getBooleanValue());
+            case NUMERIC:
+                // change getting function between date and numeric (by the format of the cell).
+                if(DateUtil.isCellDateFormatted(cell)) {
+                    // if date
+                    Date date = DateUtil.getJavaDate(value.getNumberValue(), isDate1904());
+                    return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date);
+                } else {
+                    // if numeric
+                    if (zeroSuppress) {
+                        return String.format("%03d", (int)value.getNumberValue());
+                    } else {
+                        return Integer.toString((int)value.getNumberValue());
+                    }
+                }
+            case _NONE:
+            case BLANK:
+            case ERROR:
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Whether the workbook uses 1904 date system or not.
+     * @return true: 1904 date system, false: 1900 date system
+     */
+    private boolean isDate1904() {
+        if (wb instanceof XSSFWorkbook) {
+            return ((XSSFWorkbook)wb).isDate1904();
+        }
+        return false;
+    }
+
     /**
      * Get cell value (without zero suppress, it always "false").
      * @param cell Target cell.
      * @return The value in string.
      */
-    private String getCellValue(Cell cell) {
+    String getCellValue(Cell cell) {
         return getCellValue(cell, false);
     }
 
@@ -446,8 +506,18 @@ class ExcelParser {
      * @param tag The name of named cell.
      * @return true: success, false: error(Not found named cell)
      */
-    private boolean checkNamedCell(Sheet sheet, String tag) {
-        Name name = wb.getName(tag);
+    boolean checkNamedCell(Sheet sheet, String tag) {
+        // the name defined in the scope of this sheet has priority
+        Name name = null;
+        for (Name tmp : wb.getNames(tag)) {
+            if (tmp.getSheetIndex() == wb.getSheetIndex(sheet)) {
+                name = tmp;
+                break;
+            }
+        }
+        if (name == null) {
+            name = wb.getName(tag);
+        }
         if (name == null) {
             // Not found tag
             logger.log("message.error.invalid_format", sheet.getSheetName(), tag);
@@ -491,23 +561,29 @@ class ExcelParser {
     }
 
     /**
-     * Save(overwrite) the workbook to result file.
+     * Get the workbook of the checklist.
+     * @return workbook (null in streaming mode or not opened).
      */
-    private void save() {
-        try {
-            FileOutputStream out = new FileOutputStream(resultFilename);
-            wb.write(out);
-            out.close();
-        } catch (Exception e) {
-            logger.log("message.error.unexpected", e);
-        }
+    Workbook getWorkbook() {
+        return wb;
     }
 
     /**
      * Terminate process of ExcelParser
      */
     void terminate() {
-        save();
+        // wait for screenshots to be written
+        screenshots.close();
+        pageMetrics.close();
+        // write all results to result file
+        if (writer != null) {
+            writer.close();
+        }
+        if (streamReader != null) {
+            streamReader.close();
+        }
+        // quit idle browsers
+        pool.close();
         try {
             // workbook close
             if (wb != null) {
@@ -12,6 +12,7 @@ public class Exium {
     static Logger logger;       // logger
     static ResourceBundle rb;   // message resource bundle
     static Configurator conf;   // config(using for Constants.properties and user properties)
+    static Metrics metrics;     // metrics of the run
     private static String messages = "Messages";  // for message resource bundle
 
     public static void main(String[] args) {
@@ -46,9 +47,14 @@ public class Exium {
         log.setArgName("filename");
         opts.addOption(log);
 
+        Option parallelSheets = new Option("s", "parallel-sheets", true, rb.getString("constant.option_desc.s"));
+        parallelSheets.setArgName("number");
+        opts.addOption(parallelSheets);
+
         CommandLineParser parser = new DefaultParser();
         String testFilename = "";
         String resultFilename = "";
+        int sheets = 1;
         try {
             CommandLine cl = parser.parse(opts, args);
             testFilename = cl.getOptionValue("c");
@@ -64,11 +70,24 @@ public class Exium {
                 propertiesFilename = "Constants.properties";
             }
             conf = new Configurator(propertiesFilename);
+            metrics = new Metrics();
             String logFilename = cl.getOptionValue("l");
             if (logFilename == null) {
                 logFilename = "";
             }
             logger = new Logger(logFilename);
+            conf.logWarnings();
+            String strSheets = cl.getOptionValue("s");
+            if (strSheets != null) {
+                try {
+                    sheets = Integer.parseInt(strSheets);
+                } catch (NumberFormatException nfe) {
+                    throw new ParseException("");
+                }
+                if (sheets < 1) {
+                    throw new ParseException("");
+                }
+            }
         } catch (ParseException e) {
             HelpFormatter help = new HelpFormatter();
             help.setOptionComparator(null);
@@ -77,7 +96,7 @@ public class Exium {
         }
 
         // read Excel file
-        ExcelParser ep = new ExcelParser(testFilename, resultFilename);
+        ExcelParser ep = new ExcelParser(testFilename, resultFilename, sheets);
         boolean rc = ep.openTestFile();
         if (!rc) {
             ep.terminate();
@@ -93,6 +112,8 @@ public class Exium {
 
         // terminate
         ep.terminate();
+        metrics.report();
+        logger.close();
 
     }
 }
@@ -0,0 +1,104 @@
+package com.github.exium;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compiled file name template of "Capture" command.
+ * Tags (case insensitive) are replaced at each capture:
+ * <ul>
+ *     <li>&lt;DATE&gt;: date (yyyy-MM-dd)</li>
+ *     <li>&lt;TIME&gt;: time (HH:mm:ss)</li>
+ *     <li>&lt;ID&gt;: ID of the sheet</li>
+ *     <li>&lt;TITLE&gt;: title of the sheet</li>
+ *     <li>&lt;CASENO&gt;: case number</li>
+ * </ul>
+ */
+final class FilenameTemplate {
+
+    private enum Tag {
+        DATE, TIME, ID, TITLE, CASENO
+    }
+
+    private final String[] literals;    // literal before each tag (and the last literal)
+    private final Tag[] tags;
+
+    private FilenameTemplate(String[] literals, Tag[] tags) {
+        this.literals = literals;
+        this.tags = tags;
+    }
+
+    /**
+     * Compile the template.
+     * @param origin file name with tags.
+     * @return compiled template.
+     */
+    static FilenameTemplate compile(String origin) {
+        List<String> literals = new ArrayList<>();
+        List<Tag> tags = new ArrayList<>();
+        int start = 0;
+        int pos = 0;
+        while ((pos = origin.indexOf('<', pos)) >= 0) {
+            Tag found = null;
+            for (Tag tag : Tag.values()) {
+                // compare in place (upper case of the whole name may change its length, ex. "ß" to "SS")
+                String text = "<" + tag.name() + ">";
+                if (origin.regionMatches(true, pos, text, 0, text.length())) {
+                    found = tag;
+                    break;
+                }
+            }
+            if (found == null) {
+                pos++;
+                continue;
+            }
+            literals.add(origin.substring(start, pos));
+            tags.add(found);
+            pos += found.name().length() + 2;
+            start = pos;
+        }
+        literals.add(origin.substring(start));
+        return new FilenameTemplate(literals.toArray(new String[0]), tags.toArray(new Tag[0]));
+    }
+
+    /**
+     * Create the file name.
+     * @param strCaseNum string value of case number.
+     * @param strID ID of the sheet.
+     * @param strTitle title of the sheet.
+     * @return file name.
+     */
+    String format(String strCaseNum, String strID, String strTitle) {
+        if (tags.length == 0) {
+            return literals[0];
+        }
+        Date date = new Date();
+        StringBuilder sb = new StringBuilder(literals[0]);
+        for (int i = 0; i < tags.length; i++) {
+            switch (tags[i]) {
+                case DATE:
+                    sb.append(new SimpleDateFormat("yyyy-MM-dd").format(date));
+                    break;
+                case TIME:
+                    sb.append(new SimpleDateFormat("HH:mm:ss").format(date));
+                    break;
+                case ID:
+                    sb.append(strID);
+                    break;
+                case TITLE:
+                    sb.append(strTitle);
+                    break;
+                case CASENO:
+                    sb.append(strCaseNum);
+                    break;
+                default:
+                    break;
+            }
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.github.exium;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Evaluated values of formula cells in a workbook.
+ * One evaluator is shared in the workbook (it keeps the dependency cache), and each result is memoized.
+ * Formulas aren't replaced by the values, so they remain in the result file.
+ */
+class FormulaCache {
+
+    private Workbook wb;
+    private FormulaEvaluator evaluator;
+    private Map<Long, CellValue> values = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of FormulaCache class.
+     * @param wb target workbook.
+     */
+    FormulaCache(Workbook wb) {
+        this.wb = wb;
+        this.evaluator = wb.getCreationHelper().createFormulaEvaluator();
+    }
+
+    /**
+     * Get the evaluated value of a formula cell.
+     * @param cell formula cell.
+     * @return evaluated value (null if the formula has no value).
+     */
+    CellValue evaluate(Cell cell) {
+        Long key = key(cell);
+        CellValue value = values.get(key);
+        if (value == null) {
+            synchronized (evaluator) {
+                value = evaluator.evaluate(cell);
+            }
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Evaluate all formula cells in the workbook once.
+     * Sheets are evaluated one by one by the shared evaluator (a workbook isn't thread safe).
+     * @return number of evaluated cells.
+     */
+    int preEvaluate() {
+        int count = 0;
+        synchronized (evaluator) {
+            for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+                count += preEvaluate(wb.getSheetAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evaluate all formula cells in a sheet.
+     * @param sheet target sheet.
+     * @return number of evaluated cells.
+     */
+    private int preEvaluate(Sheet sheet) {
+        int count = 0;
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (cell.getCellTypeEnum() != CellType.FORMULA) {
+                    continue;
+                }
+                try {
+                    CellValue value = evaluator.evaluate(cell);
+                    if (value != null) {
+                        values.put(key(cell), value);
+                        count++;
+                    }
+                } catch (RuntimeException re) {
+                    // ex. not implemented function. it is evaluated (and reported) at use.
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Key of a cell (sheet index, row, column).
+     * @param cell target cell.
+     * @return key.
+     */
+    private Long key(Cell cell) {
+        long sheetIndex = wb.getSheetIndex(cell.getSheet());
+        return (sheetIndex << 40) | ((long)cell.getRowIndex() << 16) | cell.getColumnIndex();
+    }
+
+}
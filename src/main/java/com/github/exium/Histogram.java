@@ -0,0 +1,95 @@
+package com.github.exium;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram in microseconds (HDR style: log-linear buckets, relative error is less than 1/64).
+ * Values under 128 are recorded exactly, and each power of 2 above it is divided into 64 buckets.
+ * Recording is lock free, so it's shared by all threads.
+ */
+final class Histogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;        // buckets in each power of 2
+    private static final int MAX_SHIFT = 40;                   // up to 2^46 microseconds
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_COUNT * 2 + MAX_SHIFT * SUB_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     * @param micros value in microseconds (negative is recorded as 0).
+     */
+    void record(long micros) {
+        long value = Math.max(micros, 0);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getSum() {
+        return sum.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        long n = count.get();
+        return (n == 0) ? 0 : (double)sum.get() / n;
+    }
+
+    /**
+     * Get the value at the percentile (the highest value of the bucket, but not over the max).
+     * @param percentile percentile (0-100).
+     * @return value in microseconds (0 if no value).
+     */
+    long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(n * Math.min(percentile, 100) / 100));
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+            if (total >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT * 2) {
+            return (int)value;
+        }
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - SUB_BITS, MAX_SHIFT);
+        long top = Math.min(value >> shift, SUB_COUNT * 2 - 1);
+        return SUB_COUNT * 2 + (shift - 1) * SUB_COUNT + (int)(top - SUB_COUNT);
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_COUNT * 2) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT * 2) / SUB_COUNT + 1;
+        long top = (index - SUB_COUNT * 2) % SUB_COUNT + SUB_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+}
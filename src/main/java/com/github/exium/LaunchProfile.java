@@ -0,0 +1,175 @@
+package com.github.exium;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+/**
+ * Launch profile of Chrome and Firefox, defined by "browser.profile.NAME.*":
+ * <ul>
+ *     <li>headless: run without a display (true/false).</li>
+ *     <li>disable_gpu: disable GPU acceleration (true/false).</li>
+ *     <li>disable_extensions: disable extensions (true/false).</li>
+ *     <li>process_limit: maximum number of renderer (content) processes (0: browser default).</li>
+ *     <li>args: command line arguments separated by spaces.</li>
+ *     <li>prefs: preferences as "name=value" separated by ";" (true/false and integers are typed).</li>
+ * </ul>
+ * The profile is selected by the device ("browser.common.device.N.profile") or the run ("browser.common.profile").
+ */
+final class LaunchProfile {
+
+    static final String DEFAULT = "default";
+
+    private final String name;
+    private final boolean headless;
+    private final boolean disableGpu;
+    private final boolean disableExtensions;
+    private final int processLimit;
+    private final List<String> args;
+    private final Map<String, Object> prefs;
+
+    private LaunchProfile(String name, Map<String, String> values, List<String[]> warnings) {
+        String prefix = "browser.profile." + name + ".";
+        this.name = name;
+        headless = values.getOrDefault(prefix + "headless", "").equalsIgnoreCase("true");
+        disableGpu = values.getOrDefault(prefix + "disable_gpu", "").equalsIgnoreCase("true");
+        disableExtensions = values.getOrDefault(prefix + "disable_extensions", "").equalsIgnoreCase("true");
+        int limit = 0;
+        String strLimit = values.getOrDefault(prefix + "process_limit", "");
+        if (!strLimit.equals("")) {
+            try {
+                limit = Integer.parseInt(strLimit);
+            } catch (NumberFormatException nfe) {
+                warnings.add(new String[]{"message.warn.cant_conv_prop_num", strLimit});
+            }
+        }
+        processLimit = limit;
+
+        List<String> listArgs = new ArrayList<>();
+        for (String arg : values.getOrDefault(prefix + "args", "").split("\\s+")) {
+            if (!arg.equals("")) {
+                listArgs.add(arg);
+            }
+        }
+        args = Collections.unmodifiableList(listArgs);
+
+        Map<String, Object> mapPrefs = new LinkedHashMap<>();
+        for (String pref : values.getOrDefault(prefix + "prefs", "").split(";")) {
+            int eq = pref.indexOf('=');
+            if (eq > 0) {
+                mapPrefs.put(pref.substring(0, eq).trim(), typed(pref.substring(eq + 1).trim()));
+            } else if (!pref.trim().equals("")) {
+                warnings.add(new String[]{"message.warn.invalid_profile_pref", name, pref.trim()});
+            }
+        }
+        prefs = Collections.unmodifiableMap(mapPrefs);
+    }
+
+    /**
+     * Load all profiles ("default" is always defined).
+     * @param values values of properties.
+     * @param warnings warnings of loading (message id and arguments) are added.
+     * @return profiles by the name (lower case).
+     */
+    static Map<String, LaunchProfile> load(Map<String, String> values, List<String[]> warnings) {
+        Map<String, LaunchProfile> profiles = new HashMap<>();
+        profiles.put(DEFAULT, new LaunchProfile(DEFAULT, values, warnings));
+        String prefix = "browser.profile.";
+        for (String key : values.keySet()) {
+            if (key.startsWith(prefix)) {
+                int dot = key.indexOf('.', prefix.length());
+                if (dot > prefix.length()) {
+                    String name = key.substring(prefix.length(), dot).toLowerCase(Locale.ROOT);
+                    if (!profiles.containsKey(name)) {
+                        profiles.put(name, new LaunchProfile(key.substring(prefix.length(), dot), values, warnings));
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableMap(profiles);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Apply this profile to the options of Chrome.
+     * @param options options of Chrome.
+     */
+    void apply(ChromeOptions options) {
+        if (headless) {
+            // note: "--disable-gpu" is also added
+            options.setHeadless(true);
+        } else if (disableGpu) {
+            options.addArguments("--disable-gpu");
+        }
+        if (disableExtensions) {
+            options.addArguments("--disable-extensions");
+        }
+        if (processLimit > 0) {
+            options.addArguments("--renderer-process-limit=" + processLimit);
+        }
+        options.addArguments(args);
+        if (!prefs.isEmpty()) {
+            options.setExperimentalOption("prefs", prefs);
+        }
+    }
+
+    /**
+     * Apply this profile to the options and the profile of Firefox.
+     * @param options options of Firefox.
+     * @param profile profile of Firefox.
+     * @return true if preferences are set to the profile.
+     */
+    boolean apply(FirefoxOptions options, FirefoxProfile profile) {
+        if (headless) {
+            options.setHeadless(true);
+        }
+        if (disableGpu) {
+            profile.setPreference("layers.acceleration.disabled", true);
+        }
+        if (disableExtensions) {
+            profile.setPreference("extensions.enabledScopes", 0);
+        }
+        if (processLimit > 0) {
+            profile.setPreference("dom.ipc.processCount", processLimit);
+        }
+        options.addArguments(args);
+        for (Map.Entry<String, Object> pref : prefs.entrySet()) {
+            Object value = pref.getValue();
+            if (value instanceof Boolean) {
+                profile.setPreference(pref.getKey(), (Boolean)value);
+            } else if (value instanceof Integer) {
+                profile.setPreference(pref.getKey(), (Integer)value);
+            } else {
+                profile.setPreference(pref.getKey(), (String)value);
+            }
+        }
+        return disableGpu || disableExtensions || (processLimit > 0) || !prefs.isEmpty();
+    }
+
+    private static Object typed(String value) {
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.valueOf(value);
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException nfe) {
+            return value;
+        }
+    }
+
+}
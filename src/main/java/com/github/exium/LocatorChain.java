@@ -0,0 +1,148 @@
+package com.github.exium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chain of locators (by_id, by_name, by_class, by_xpath, by_link_text).
+ * Each locator finds in the elements found by the previous locator, and the chain is resolved
+ * in the browser by one script (one round trip instead of one for each element of each level).
+ */
+final class LocatorChain {
+
+    // function(chain): chain is [[param, value], ...]
+    // return: found elements (in the same order as WebElement.findElements for each parent),
+    //         or the index of the locator which found nothing.
+    // by_class: compound class names are rejected as By.className (the script fails, and the locators are used one by one).
+    static final String RESOLVE_FUNCTION =
+            "function(chain) {" +
+            "var quote = function(v) { return '\"' + v.replace(/[\"\\\\]/g, '\\\\$&') + '\"'; };" +
+            "var nodes = [document];" +
+            "for (var i = 0; i < chain.length; i++) {" +
+            "  var type = chain[i][0], value = chain[i][1], next = [];" +
+            "  for (var j = 0; j < nodes.length; j++) {" +
+            "    var node = nodes[j], found = [];" +
+            "    if (type === 'by_id') {" +
+            "      found = node.querySelectorAll('[id=' + quote(value) + ']');" +
+            "    } else if (type === 'by_name') {" +
+            "      found = node.querySelectorAll('[name=' + quote(value) + ']');" +
+            "    } else if (type === 'by_class') {" +
+            "      if (/\\s/.test(value)) { throw new Error('Compound class names not permitted'); }" +
+            "      found = node.getElementsByClassName(value);" +
+            "    } else if (type === 'by_xpath') {" +
+            "      var result = document.evaluate(value, node, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);" +
+            "      for (var k = 0; k < result.snapshotLength; k++) {" +
+            "        if (result.snapshotItem(k).nodeType === 1) { found.push(result.snapshotItem(k)); }" +
+            "      }" +
+            "    } else if (type === 'by_link_text') {" +
+            "      var links = node.getElementsByTagName('a');" +
+            "      for (var k = 0; k < links.length; k++) {" +
+            "        var text = (links[k].innerText || links[k].textContent || '').replace(/\\s+/g, ' ').trim();" +
+            "        if (text === value) { found.push(links[k]); }" +
+            "      }" +
+            "    }" +
+            "    for (var k = 0; k < found.length; k++) { next.push(found[k]); }" +
+            "  }" +
+            "  if (next.length === 0) { return i; }" +
+            "  nodes = next;" +
+            "}" +
+            "return nodes;" +
+            "}";
+
+    private static final String FIND_SCRIPT = "return (" + RESOLVE_FUNCTION + ")(arguments[0]);";
+
+    private final List<String[]> locators;
+
+    private LocatorChain(List<String[]> locators) {
+        this.locators = locators;
+    }
+
+    /**
+     * Create the chain from parameters (parameters other than locators are ignored).
+     * @param listParameter parameter list with its values.
+     * @return chain of locators.
+     */
+    static LocatorChain of(List<String[]> listParameter) {
+        List<String[]> locators = new ArrayList<>();
+        for (String[] param : listParameter) {
+            switch (param[0]) {
+                case ("by_id"):
+                case ("by_name"):
+                case ("by_class"):
+                case ("by_xpath"):
+                case ("by_link_text"):
+                    locators.add(new String[]{param[0], param[1]});
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new LocatorChain(locators);
+    }
+
+    /**
+     * Key of the chain (normalized locators).
+     * Each value is prefixed by its length, so values can't be mistaken for separators.
+     * @return key string.
+     */
+    String key() {
+        StringBuilder sb = new StringBuilder();
+        for (String[] locator : locators) {
+            sb.append(locator[0]).append(':').append(locator[1].length()).append(':').append(locator[1]).append(';');
+        }
+        return sb.toString();
+    }
+
+    int size() {
+        return locators.size();
+    }
+
+    String[] get(int index) {
+        return locators.get(index);
+    }
+
+    /**
+     * Get all locators.
+     * @return {param, value} of each locator.
+     */
+    List<String[]> getLocators() {
+        return locators;
+    }
+
+    /**
+     * Find elements by one script.
+     * @param executor web driver.
+     * @param last the last used locator {param, value} (output).
+     * @return found elements (null if not found)
+     * @throws org.openqa.selenium.WebDriverException if the script fails (ex. invalid XPath).
+     * @throws IllegalStateException if the result is unexpected.
+     */
+    @SuppressWarnings("unchecked")
+    List<WebElement> find(JavascriptExecutor executor, String[] last) {
+        Object result = executor.executeScript(FIND_SCRIPT, locators);
+        if (result instanceof Number) {
+            String[] locator = locators.get(((Number)result).intValue());
+            last[0] = locator[0];
+            last[1] = locator[1];
+            return null;
+        }
+        if (!(result instanceof List)) {
+            throw new IllegalStateException("unexpected result: " + result);
+        }
+        String[] locator = locators.get(locators.size() - 1);
+        last[0] = locator[0];
+        last[1] = locator[1];
+        List<WebElement> elements = new ArrayList<>();
+        for (Object element : (List<Object>)result) {
+            if (!(element instanceof WebElement)) {
+                throw new IllegalStateException("unexpected element: " + element);
+            }
+            elements.add((WebElement)element);
+        }
+        return elements;
+    }
+
+}
@@ -1,76 +1,386 @@
 package com.github.exium;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Output logs (to the log file, or the console if not specified).
+ * Logs are put into a ring buffer and written by a background thread, so callers don't wait for the file.
+ * Messages below the level (logger.common.level) are not formatted (except the messages of "Log" command).
+ */
 class Logger {
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    private static final String[] LEVELS = {"info", "warn", "error"};
+    private static final String LOG_COMMAND = "message.info.log.";          // messages of "Log" command
+
     private ResourceBundle rb;
-    private File file;
+    private String filename;
     private String lineCd;
-    private boolean append = false;
+    private int level;                                                      // index of LEVELS
+    private Map<String, MessageFormat> formats = new ConcurrentHashMap<>(); // compiled message of each id
+    private ThreadLocal<LogGroup> group = new ThreadLocal<>();  // logs kept together (by each thread)
+    private Ring ring;
+    private Writer out = null;                  // used only by the writer thread (null: console)
+    private boolean append = false;             // the log file is created at the first log
+    private AtomicBoolean sleeping = new AtomicBoolean(false);
+    private volatile boolean running = true;
+    private Thread thread;
+    private Thread hook;
 
     Logger(String filename) {
         rb = Exium.rb;
-        if (filename.equals("")) {
-            file = null;
-        } else {
-			file = new File(filename);
-	    }
+        this.filename = filename;
         lineCd = System.getProperty("line.separator");
+        Configurator conf = Exium.conf;
+        level = levelOf(conf.getStringProperty("logger.common.level"));
+        ring = new Ring(conf.getIntProperty("logger.common.buffer"));
+
+        // writer thread (and flush on shutdown)
+        thread = new Thread(this::run, "Logger");
+        thread.setDaemon(true);
+        thread.start();
+        hook = new Thread(this::close, "Logger-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+
 		log("message.info.start_excelenium");
     }
 
     void log(String msg_id, String... args) {
-
-        Date now = new Date();
-        String str = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(now);
-        MessageFormat mf = new MessageFormat(rb.getString(msg_id));
-        output(str + "  " + mf.format(args));
+        if (!isEnabled(msg_id)) {
+            return;
+        }
+        output(format(msg_id, args));
     }
 
 
     void log(String msg_id, Exception e, String... args) {
+        if (!isEnabled(msg_id)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(format(msg_id, args)).append(lineCd);
+        appendTrace(sb, e, "");
+        sb.setLength(sb.length() - lineCd.length());
+        output(sb.toString());
+    }
+
+    /**
+     * Whether the message is output or not (by the level).
+     * The messages of "Log" command (message.info.log.xxx) are always output, because the checklist asks for them.
+     * @param msg_id message id (message.(level).xxx).
+     * @return true: output
+     */
+    private boolean isEnabled(String msg_id) {
+        if (msg_id.startsWith(LOG_COMMAND)) {
+            return true;
+        }
+        String[] ids = msg_id.split("\\.", 3);
+        return (ids.length < 3) || (levelOf(ids[1]) >= level);
+    }
 
-        log(msg_id, args);
+    private static int levelOf(String name) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
 
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        e.printStackTrace(pw);
-        String trace = sw.toString();
-        output(trace);
-        try {
-            sw.close();
-            pw.close();
-        } catch (Exception ignore) {
-            // do nothing
+    private String format(String msg_id, String... args) {
+        MessageFormat mf = formats.computeIfAbsent(msg_id, id -> new MessageFormat(rb.getString(id)));
+        String message;
+        // MessageFormat isn't thread safe
+        synchronized (mf) {
+            message = mf.format(args);
         }
+        return ZonedDateTime.now().format(DATE_FORMAT) + "  " + message;
+    }
 
+    /**
+     * Append the stack trace (same format as Throwable.printStackTrace without "... n more").
+     */
+    private void appendTrace(StringBuilder sb, Throwable t, String caption) {
+        sb.append(caption).append(t).append(lineCd);
+        for (StackTraceElement element : t.getStackTrace()) {
+            sb.append("\tat ").append(element).append(lineCd);
+        }
+        if ((t.getCause() != null) && (t.getCause() != t)) {
+            appendTrace(sb, t.getCause(), "Caused by: ");
+        }
     }
 
 
+    /**
+     * Start a group of logs in this thread. The logs are kept until the group ends, and output together.
+     */
+    void startGroup() {
+        group.set(new LogGroup());
+    }
+
+    /**
+     * Leave the group of this thread without output (to hand it over to another thread).
+     * @return the group (null if not started).
+     */
+    LogGroup leaveGroup() {
+        LogGroup current = group.get();
+        group.remove();
+        return current;
+    }
+
+    /**
+     * Join a group which is handed over from another thread.
+     * @param handed the group.
+     */
+    void joinGroup(LogGroup handed) {
+        group.set(handed);
+    }
+
+    /**
+     * End the group of this thread and output its logs.
+     */
+    void endGroup() {
+        LogGroup current = leaveGroup();
+        if ((current != null) && (current.buffer.length() > 0)) {
+            write(current.buffer.toString());
+        }
+    }
+
+    /**
+     * Output the logs of a group which is left by another thread (into the group of this thread if started).
+     * @param other the group.
+     */
+    void appendGroup(LogGroup other) {
+        if ((other == null) || (other.buffer.length() == 0)) {
+            return;
+        }
+        LogGroup current = group.get();
+        if (current != null) {
+            current.buffer.append(other.buffer);
+        } else {
+            write(other.buffer.toString());
+        }
+    }
+
+    /**
+     * Write all logs and close the log file (called on shutdown).
+     */
+    void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        // logs put while closing
+        synchronized (this) {
+            for (String text = ring.poll(); text != null; text = ring.poll()) {
+                writeText(text);
+            }
+            flushText();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException ise) {
+            // already shutting down
+        }
+    }
+
     private void output(String str) {
-		if (file == null) {
-			System.out.println(str);
-		} else {
-			try {
-				FileWriter filewriter = new FileWriter(file, append);
-				filewriter.write(str + lineCd);
-				filewriter.close();
-			} catch (Exception e) {
-				file = null;
-				log("message.warn.cant_open_logfile", e);
-			}
-			if (!append) {
-				append = true;
-			}
-		}
-	}
+        LogGroup current = group.get();
+        if (current != null) {
+            current.buffer.append(str).append(lineCd);
+        } else {
+            write(str + lineCd);
+        }
+    }
+
+    private void write(String text) {
+        if (!running) {
+            // after close (ex. logs of shutdown hooks)
+            synchronized (this) {
+                writeText(text);
+                flushText();
+            }
+            return;
+        }
+        // wait for the writer thread if the buffer is full
+        while (!ring.offer(text)) {
+            LockSupport.unpark(thread);
+            Thread.yield();
+        }
+        if (sleeping.get()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Writer thread: write logs in the buffer, and flush when the buffer becomes empty.
+     */
+    private void run() {
+        while (true) {
+            String text = ring.poll();
+            if (text != null) {
+                synchronized (this) {
+                    writeText(text);
+                }
+                continue;
+            }
+            synchronized (this) {
+                flushText();
+            }
+            if (!running) {
+                // drain the rest
+                if (ring.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            sleeping.set(true);
+            if (ring.isEmpty()) {
+                LockSupport.parkNanos(100_000_000L);
+            }
+            sleeping.set(false);
+        }
+        synchronized (this) {
+            closeFile();
+        }
+    }
+
+    private void writeText(String text) {
+        if (filename.equals("")) {
+            System.out.print(text);
+            return;
+        }
+        try {
+            if (out == null) {
+                // the log file is kept opened until closed
+                FileChannel channel = FileChannel.open(Paths.get(filename).toAbsolutePath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+                append = true;
+                // same as FileWriter (unmappable characters are replaced)
+                CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+                out = Channels.newWriter(channel, encoder, 64 * 1024);
+            }
+            out.write(text);
+        } catch (Exception e) {
+            closeFile();
+            filename = "";
+            System.out.print(text);
+            StringBuilder sb = new StringBuilder(format("message.warn.cant_open_logfile")).append(lineCd);
+            appendTrace(sb, e, "");
+            System.out.print(sb);
+        }
+    }
+
+    private void flushText() {
+        try {
+            if (out != null) {
+                out.flush();
+            } else {
+                System.out.flush();
+            }
+        } catch (IOException ioe) {
+            // reported at the next write
+        }
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                // do nothing
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Logs kept together
+     */
+    static class LogGroup {
+        private StringBuilder buffer = new StringBuilder();
+    }
+
+    /**
+     * Bounded lock-free ring buffer (multiple producers, one consumer).
+     * Each slot has a sequence number, so producers claim slots by CAS without locks.
+     */
+    private static final class Ring {
+        private final int mask;
+        private final AtomicReferenceArray<String> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();   // next position to offer
+        private volatile long head = 0;                     // next position to poll (only by the consumer)
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+            mask = size - 1;
+            slots = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(String text) {
+            while (true) {
+                long pos = tail.get();
+                int index = (int)(pos & mask);
+                long diff = sequences.get(index) - pos;
+                if (diff < 0) {
+                    // full
+                    return false;
+                }
+                if ((diff == 0) && tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, text);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            }
+        }
+
+        String poll() {
+            long pos = head;
+            int index = (int)(pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                // empty (or not published yet)
+                return null;
+            }
+            String text = slots.get(index);
+            slots.set(index, null);
+            sequences.set(index, pos + mask + 1);
+            head = pos + 1;
+            return text;
+        }
+
+        boolean isEmpty() {
+            return tail.get() == head;
+        }
+    }
 
 }
@@ -0,0 +1,276 @@
+package com.github.exium;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Registry of metrics of a run (shared by all threads).
+ * Each series (name and a label) has a latency histogram and OK/NG counters:
+ * <ul>
+ *     <li>command (command): time of each command, and results.</li>
+ *     <li>case (sheet): time of each case, and results (NG if any command is NG).</li>
+ *     <li>lookup (command): time to find elements.</li>
+ *     <li>driver_startup (browser): time to start a browser.</li>
+ *     <li>result_save: time to write the result file.</li>
+ *     <li>page_ttfb, page_dom_content_loaded, page_load, page_lcp (page): times of pages (see PageMetrics).</li>
+ * </ul>
+ * The summary is output to the log at the end of the run, and exported to a Prometheus text file
+ * and a CSV file (appended by each run) if specified.
+ */
+class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private boolean enabled;
+    private Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructor of Metrics class.
+     */
+    Metrics() {
+        enabled = Exium.conf.getBooleanProperty("metrics.common.enabled");
+    }
+
+    /**
+     * Record the time from the start.
+     * @param name name of the series.
+     * @param labelName name of the label (null if no label).
+     * @param labelValue value of the label.
+     * @param startNanos start time (System.nanoTime()).
+     */
+    void record(String name, String labelName, String labelValue, long startNanos) {
+        if (enabled) {
+            get(name, labelName, labelValue).histogram.record((System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    /**
+     * Record a measured time.
+     * @param name name of the series.
+     * @param labelName name of the label (null if no label).
+     * @param labelValue value of the label.
+     * @param micros time (microseconds).
+     */
+    void recordValue(String name, String labelName, String labelValue, long micros) {
+        if (enabled) {
+            get(name, labelName, labelValue).histogram.record(micros);
+        }
+    }
+
+    /**
+     * Count the result.
+     * @param name name of the series.
+     * @param labelName name of the label (null if no label).
+     * @param labelValue value of the label.
+     * @param rc result (true: OK, false: NG)
+     */
+    void count(String name, String labelName, String labelValue, boolean rc) {
+        if (enabled) {
+            Series target = get(name, labelName, labelValue);
+            (rc ? target.ok : target.ng).incrementAndGet();
+        }
+    }
+
+    /**
+     * Correct a counted result from OK to NG (ex. the command failed after its result was counted).
+     * @param name name of the series.
+     * @param labelName name of the label (null if no label).
+     * @param labelValue value of the label.
+     */
+    void recountAsNG(String name, String labelName, String labelValue) {
+        if (enabled) {
+            Series target = get(name, labelName, labelValue);
+            target.ok.decrementAndGet();
+            target.ng.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of results of all series of the name.
+     * @param name name of the series.
+     * @return number of OK and NG.
+     */
+    long getCount(String name) {
+        long count = 0;
+        for (Series target : series.values()) {
+            if (target.name.equals(name)) {
+                count += target.ok.get() + target.ng.get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Output the summary to the log, and export to the files.
+     */
+    void report() {
+        if (!enabled || series.isEmpty()) {
+            return;
+        }
+        Logger logger = Exium.logger;
+        for (Series target : series.values()) {
+            Histogram histogram = target.histogram;
+            logger.log("message.info.metrics", target.name, (target.labelName != null) ? target.labelValue : "",
+                    Long.toString(histogram.getCount()), millis(Math.round(histogram.getMean())),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMax()),
+                    Long.toString(target.ok.get()), Long.toString(target.ng.get()));
+        }
+
+        Configurator conf = Exium.conf;
+        String prometheus = conf.getStringProperty("metrics.common.prometheus");
+        if (!prometheus.equals("")) {
+            try {
+                writePrometheus(new File(prometheus).getAbsoluteFile().toPath());
+            } catch (IOException ioe) {
+                logger.log("message.error.cant_write_file", ioe, prometheus);
+            }
+        }
+        String csv = conf.getStringProperty("metrics.common.csv");
+        if (!csv.equals("")) {
+            try {
+                appendCsv(new File(csv).getAbsoluteFile().toPath());
+            } catch (IOException ioe) {
+                logger.log("message.error.cant_write_file", ioe, csv);
+            }
+        }
+    }
+
+    private Series get(String name, String labelName, String labelValue) {
+        String key = name + '\u0000' + labelName + '\u0000' + labelValue;
+        Series target = series.get(key);
+        if (target == null) {
+            target = series.computeIfAbsent(key, k -> new Series(name, labelName, labelValue));
+        }
+        return target;
+    }
+
+    /**
+     * Write the Prometheus text format (summary and counter), by replacing the file.
+     */
+    private void writePrometheus(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String lastName = "";
+        for (Series target : series.values()) {
+            String metric = "exium_" + target.name + "_seconds";
+            if (!target.name.equals(lastName)) {
+                sb.append("# TYPE ").append(metric).append(" summary\n");
+                lastName = target.name;
+            }
+            Histogram histogram = target.histogram;
+            for (double quantile : QUANTILES) {
+                sb.append(metric).append(labels(target, "quantile", Double.toString(quantile))).append(' ')
+                        .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            sb.append(metric).append("_sum").append(labels(target, null, null)).append(' ')
+                    .append(seconds(histogram.getSum())).append('\n');
+            sb.append(metric).append("_count").append(labels(target, null, null)).append(' ')
+                    .append(histogram.getCount()).append('\n');
+        }
+        lastName = "";
+        for (Series target : series.values()) {
+            if ((target.ok.get() == 0) && (target.ng.get() == 0)) {
+                continue;
+            }
+            String metric = "exium_" + target.name + "_results_total";
+            if (!target.name.equals(lastName)) {
+                sb.append("# TYPE ").append(metric).append(" counter\n");
+                lastName = target.name;
+            }
+            sb.append(metric).append(labels(target, "result", "ok")).append(' ').append(target.ok.get()).append('\n');
+            sb.append(metric).append(labels(target, "result", "ng")).append(' ').append(target.ng.get()).append('\n');
+        }
+
+        // replace the file at once (for the textfile collector)
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Append a line of each series to the CSV file (the header is written if the file is new).
+     */
+    private void appendCsv(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        boolean isNew = !Files.exists(path);
+        String time = ZonedDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             CSVPrinter printer = new CSVPrinter(out, CSVFormat.EXCEL)) {
+            if (isNew) {
+                printer.printRecord("time", "name", "label", "value", "count", "mean_ms", "p50_ms", "p90_ms", "p99_ms",
+                        "max_ms", "ok", "ng");
+            }
+            for (Series target : series.values()) {
+                Histogram histogram = target.histogram;
+                printer.printRecord(time, target.name, (target.labelName != null) ? target.labelName : "",
+                        (target.labelName != null) ? target.labelValue : "", histogram.getCount(),
+                        millis(Math.round(histogram.getMean())), millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getMax()), target.ok.get(), target.ng.get());
+            }
+        }
+    }
+
+    private static String labels(Series target, String extraName, String extraValue) {
+        StringBuilder sb = new StringBuilder();
+        if (target.labelName != null) {
+            sb.append(target.labelName).append("=\"").append(escape(target.labelValue)).append('"');
+        }
+        if (extraName != null) {
+            sb.append((sb.length() > 0) ? "," : "").append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        return (sb.length() > 0) ? "{" + sb + "}" : "";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1000000.0);
+    }
+
+    /**
+     * Histogram and counters of a series
+     */
+    private static final class Series {
+        private final String name;
+        private final String labelName;
+        private final String labelValue;
+        private final Histogram histogram = new Histogram();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong ng = new AtomicLong();
+
+        Series(String name, String labelName, String labelValue) {
+            this.name = name;
+            this.labelName = labelName;
+            this.labelValue = labelValue;
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.github.exium;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Performance of pages (Navigation Timing, Resource Timing and largest contentful paint), measured by "Measure"
+ * command and after "Open", "Click" and "Submit" (if "metrics.page.auto" is true or the parameter "measure" is "true").
+ * Each measurement is written to the file of the run ("metrics.page.file", tags DATE and TIME are available),
+ * and the times are recorded to Metrics by each page (URL without query), so the percentiles are reported
+ * at the end of the run.
+ */
+class PageMetrics {
+
+    // result: [url, ttfb, domContentLoaded, load, lcp, transferSize, resources, resourceTransferSize, timeOrigin]
+    // (times are milliseconds from the start of the navigation, 0 if not reached, lcp is -1 if not supported)
+    static final String MEASURE_SCRIPT =
+            "var p = window.performance;" +
+            "if (!p || !p.timing) { return null; }" +
+            "var nav = p.getEntriesByType ? p.getEntriesByType('navigation')[0] : null;" +
+            "var t = p.timing, ttfb, dcl, load, size = 0;" +
+            "if (nav) {" +
+            "  ttfb = nav.responseStart; dcl = nav.domContentLoadedEventEnd; load = nav.loadEventEnd; size = nav.transferSize || 0;" +
+            "} else {" +
+            "  ttfb = t.responseStart - t.navigationStart;" +
+            "  dcl = t.domContentLoadedEventEnd ? t.domContentLoadedEventEnd - t.navigationStart : 0;" +
+            "  load = t.loadEventEnd ? t.loadEventEnd - t.navigationStart : 0;" +
+            "}" +
+            "var lcp = -1;" +
+            "try {" +
+            "  var observer = new PerformanceObserver(function() {});" +
+            "  observer.observe({type: 'largest-contentful-paint', buffered: true});" +
+            "  var entries = observer.takeRecords();" +
+            "  observer.disconnect();" +
+            "  lcp = entries.length ? entries[entries.length - 1].startTime : 0;" +
+            "} catch (e) {}" +
+            "var resources = p.getEntriesByType ? p.getEntriesByType('resource') : [], bytes = 0;" +
+            "for (var i = 0; i < resources.length; i++) { bytes += resources[i].transferSize || 0; }" +
+            "return [location.href, ttfb, dcl, load, lcp, size, resources.length, bytes," +
+            "  p.timeOrigin || t.navigationStart];";
+
+    private final boolean auto;
+    private final String filename;      // "" if not written
+    private CSVPrinter printer = null;
+    private boolean failed = false;
+
+    /**
+     * Constructor of PageMetrics class.
+     */
+    PageMetrics() {
+        Configurator conf = Exium.conf;
+        auto = conf.getBooleanProperty("metrics.page.auto");
+        String origin = conf.getStringProperty("metrics.page.file");
+        filename = origin.equals("") ? "" : FilenameTemplate.compile(origin).format("", "", "");
+    }
+
+    /**
+     * Whether the command measures the page or not ("Open", "Click" and "Submit").
+     * @param command command.
+     * @param listParameter checked parameters (the parameter "measure" overrides "metrics.page.auto").
+     * @return true if measures.
+     */
+    boolean isMeasured(TestCommand command, List<String[]> listParameter) {
+        CommandType type = command.getType();
+        if ((type != CommandType.OPEN) && (type != CommandType.CLICK) && (type != CommandType.SUBMIT)) {
+            return false;
+        }
+        for (String[] param : listParameter) {
+            if (param[0].equalsIgnoreCase("measure") && (param[1] != null)) {
+                return param[1].equalsIgnoreCase("true");
+            }
+        }
+        return auto;
+    }
+
+    /**
+     * Record a measurement.
+     * @param plan test plan of the sheet.
+     * @param strCaseNum string value of case number.
+     * @param command measured command.
+     * @param result result of MEASURE_SCRIPT.
+     */
+    void record(TestPlan plan, String strCaseNum, TestCommand command, List<?> result) {
+        String url = String.valueOf(result.get(0));
+        long ttfb = micros(result.get(1));
+        long dcl = micros(result.get(2));
+        long load = micros(result.get(3));
+        long lcp = micros(result.get(4));
+        String page = page(url);
+
+        Metrics metrics = Exium.metrics;
+        metrics.recordValue("page_ttfb", "page", page, ttfb);
+        if (dcl > 0) {
+            metrics.recordValue("page_dom_content_loaded", "page", page, dcl);
+        }
+        if (load > 0) {
+            metrics.recordValue("page_load", "page", page, load);
+        }
+        if (lcp > 0) {
+            metrics.recordValue("page_lcp", "page", page, lcp);
+        }
+        Exium.logger.log("message.info.page_metrics", strCaseNum, command.getName(), url, millis(ttfb),
+                millis(dcl), millis(load), (lcp < 0) ? "-" : millis(lcp));
+
+        if (!filename.equals("")) {
+            write(plan, strCaseNum, command, url, ttfb, dcl, load, lcp, result);
+        }
+    }
+
+    /**
+     * Close the file.
+     */
+    synchronized void close() {
+        if (printer != null) {
+            try {
+                printer.close();
+            } catch (IOException ioe) {
+                Exium.logger.log("message.error.cant_write_file", ioe, filename);
+            }
+            printer = null;
+        }
+    }
+
+    private synchronized void write(TestPlan plan, String strCaseNum, TestCommand command, String url,
+                                    long ttfb, long dcl, long load, long lcp, List<?> result) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (printer == null) {
+                Path path = new File(filename).getAbsoluteFile().toPath();
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                printer = new CSVPrinter(out, CSVFormat.EXCEL);
+                printer.printRecord("time", "id", "sheet", "case", "row", "command", "url", "ttfb_ms", "dcl_ms",
+                        "load_ms", "lcp_ms", "transfer_bytes", "resources", "resource_bytes");
+            }
+            printer.printRecord(ZonedDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME), plan.getID(),
+                    plan.getName(), strCaseNum, plan.getRowStart() + command.getRowStart() + 1, command.getName(),
+                    url, millis(ttfb), millis(dcl), millis(load), (lcp < 0) ? "" : millis(lcp), number(result.get(5)),
+                    number(result.get(6)), number(result.get(7)));
+            printer.flush();
+        } catch (IOException ioe) {
+            // note: don't retry for each measurement
+            failed = true;
+            Exium.logger.log("message.error.cant_write_file", ioe, filename);
+        }
+    }
+
+    private static String page(String url) {
+        int end = url.length();
+        for (char c : new char[]{'?', '#'}) {
+            int pos = url.indexOf(c);
+            if ((pos >= 0) && (pos < end)) {
+                end = pos;
+            }
+        }
+        return url.substring(0, end);
+    }
+
+    private static long micros(Object value) {
+        return (value instanceof Number) ? Math.round(((Number)value).doubleValue() * 1000) : 0;
+    }
+
+    private static long number(Object value) {
+        return (value instanceof Number) ? ((Number)value).longValue() : 0;
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.github.exium;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Re-compress PNG images by a compression level (lossless: only the image data is deflated again).
+ */
+final class PngCompressor {
+
+    private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private PngCompressor() {
+    }
+
+    /**
+     * Re-compress the image data (IDAT chunks) by the level. Other chunks are kept as they are.
+     * @param png PNG image.
+     * @param level compression level (0-9).
+     * @return re-compressed image (the original if it isn't PNG or the result isn't smaller).
+     */
+    static byte[] recompress(byte[] png, int level) {
+        try {
+            byte[] result = recompressChunks(png, level);
+            return ((result != null) && (result.length < png.length)) ? result : png;
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            // broken image, keep it as it is
+            return png;
+        }
+    }
+
+    private static byte[] recompressChunks(byte[] png, int level) throws IOException, DataFormatException {
+        ByteBuffer in = ByteBuffer.wrap(png);
+        for (byte b : SIGNATURE) {
+            if (!in.hasRemaining() || (in.get() != b)) {
+                return null;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(png.length);
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(png.length * 4);
+        byte[] buffer = new byte[64 * 1024];
+        boolean isDataWritten = false;
+        try {
+            while (in.remaining() >= 12) {
+                int length = in.getInt();
+                byte[] type = new byte[4];
+                in.get(type);
+                byte[] body = new byte[length];
+                in.get(body);
+                int crc = in.getInt();
+                String name = new String(type, StandardCharsets.US_ASCII);
+
+                if (name.equals("IDAT")) {
+                    // inflate all IDAT chunks (they are one zlib stream)
+                    inflater.setInput(body);
+                    int n;
+                    while ((n = inflater.inflate(buffer)) > 0) {
+                        raw.write(buffer, 0, n);
+                    }
+                    continue;
+                }
+                if (!isDataWritten && (raw.size() > 0)) {
+                    writeChunk(data, "IDAT", deflate(raw.toByteArray(), level));
+                    isDataWritten = true;
+                }
+                data.writeInt(length);
+                data.write(type);
+                data.write(body);
+                data.writeInt(crc);
+                if (name.equals("IEND")) {
+                    break;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return isDataWritten ? out.toByteArray() : null;
+    }
+
+    private static byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeChunk(DataOutputStream data, String name, byte[] body) throws IOException {
+        byte[] type = name.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(body);
+        data.writeInt(body.length);
+        data.write(type);
+        data.write(body);
+        data.writeInt((int)crc.getValue());
+    }
+
+}
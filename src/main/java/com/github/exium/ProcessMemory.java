@@ -0,0 +1,104 @@
+package com.github.exium;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memory of the processes started by Exium (driver services and browsers), read from /proc (Linux only).
+ * The memory of a session is the resident set size of the processes started while the session is created.
+ */
+final class ProcessMemory {
+
+    private static final File PROC = new File("/proc");
+    private static final String SELF = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * Whether the memory can be measured or not.
+     * @return true if /proc is available.
+     */
+    static boolean isSupported() {
+        return new File(PROC, SELF).isDirectory();
+    }
+
+    /**
+     * Get the descendant processes of this JVM.
+     * @return process ids (empty if not supported).
+     */
+    static Set<String> descendants() {
+        if (!isSupported()) {
+            return Collections.emptySet();
+        }
+        Map<String, List<String>> children = new HashMap<>();
+        String[] pids = PROC.list();
+        if (pids == null) {
+            return Collections.emptySet();
+        }
+        for (String pid : pids) {
+            if (!Character.isDigit(pid.charAt(0))) {
+                continue;
+            }
+            try {
+                // "pid (comm) state ppid ...", comm may have spaces
+                String stat = new String(Files.readAllBytes(Paths.get("/proc", pid, "stat")), StandardCharsets.UTF_8);
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                children.computeIfAbsent(fields[1], k -> new ArrayList<>()).add(pid);
+            } catch (Exception e) {
+                ; // the process has exited
+            }
+        }
+        Set<String> found = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>(Collections.singletonList(SELF));
+        while (!queue.isEmpty()) {
+            for (String child : children.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (found.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the resident set size of the descendant processes started after the snapshot.
+     * @param before descendant processes before (descendants()).
+     * @return bytes (-1 if not supported).
+     */
+    static long startedSince(Set<String> before) {
+        if (!isSupported()) {
+            return -1;
+        }
+        long total = 0;
+        for (String pid : descendants()) {
+            if (before.contains(pid)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmRSS:")) {
+                        total += Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                ; // the process has exited
+            }
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.github.exium;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+/**
+ * Resource policy of Chrome and Firefox (resources blocked while loading pages), defined by "browser.policy.NAME.*":
+ * <ul>
+ *     <li>block_types: types of resources separated by "," (images, media, fonts).</li>
+ *     <li>block_hosts: host patterns separated by "," (ex. "*.doubleclick.net").</li>
+ *     <li>block_urls: URL patterns separated by "," (ex. "http://*.example.com/ads/*"). Chrome matches only the host part for https.</li>
+ *     <li>allow_hosts: host patterns separated by "," (if specified, other hosts are blocked as third-party hosts).</li>
+ * </ul>
+ * Types are blocked by browser preferences and arguments, and hosts and URLs by a proxy auto-config script
+ * (blocked requests are sent to a closed port, so they fail immediately).
+ * The policy is selected by the device ("browser.common.device.N.policy") or the run ("browser.common.resource_policy"),
+ * and "none" doesn't block anything ("Open" and "Capture" can select it by the parameter "render" = "full").
+ */
+final class ResourcePolicy {
+
+    static final String NONE = "none";
+
+    private static final String BLOCKED = "PROXY 127.0.0.1:9";
+
+    private final String name;
+    private final Set<String> types;
+    private final List<String> blockHosts;
+    private final List<String> blockUrls;
+    private final List<String> allowHosts;
+
+    private ResourcePolicy(String name, Map<String, String> values, List<String[]> warnings) {
+        String prefix = "browser.policy." + name + ".";
+        this.name = name;
+        Set<String> setTypes = new HashSet<>();
+        for (String type : split(values.getOrDefault(prefix + "block_types", ""))) {
+            type = type.toLowerCase(Locale.ROOT);
+            if (type.equals("images") || type.equals("media") || type.equals("fonts")) {
+                setTypes.add(type);
+            } else {
+                warnings.add(new String[]{"message.warn.invalid_policy_type", name, type});
+            }
+        }
+        types = Collections.unmodifiableSet(setTypes);
+        blockHosts = split(values.getOrDefault(prefix + "block_hosts", ""));
+        blockUrls = split(values.getOrDefault(prefix + "block_urls", ""));
+        allowHosts = split(values.getOrDefault(prefix + "allow_hosts", ""));
+    }
+
+    /**
+     * Load all policies ("none" is always defined and blocks nothing).
+     * @param values values of properties.
+     * @param warnings warnings of loading (message id and arguments) are added.
+     * @return policies by the name (lower case).
+     */
+    static Map<String, ResourcePolicy> load(Map<String, String> values, List<String[]> warnings) {
+        Map<String, ResourcePolicy> policies = new HashMap<>();
+        policies.put(NONE, new ResourcePolicy(NONE, Collections.emptyMap(), warnings));
+        String prefix = "browser.policy.";
+        for (String key : values.keySet()) {
+            if (key.startsWith(prefix)) {
+                int dot = key.indexOf('.', prefix.length());
+                if (dot > prefix.length()) {
+                    String name = key.substring(prefix.length(), dot).toLowerCase(Locale.ROOT);
+                    if (!policies.containsKey(name)) {
+                        policies.put(name, new ResourcePolicy(key.substring(prefix.length(), dot), values, warnings));
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableMap(policies);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Whether this policy blocks any resources or not.
+     * @return true if blocks.
+     */
+    boolean isBlocking() {
+        return !types.isEmpty() || !blockHosts.isEmpty() || !blockUrls.isEmpty() || !allowHosts.isEmpty();
+    }
+
+    /**
+     * Apply this policy to the options of Chrome.
+     * @param options options of Chrome.
+     */
+    void apply(ChromeOptions options) {
+        if (types.contains("images")) {
+            options.addArguments("--blink-settings=imagesEnabled=false");
+        }
+        if (types.contains("media")) {
+            options.addArguments("--autoplay-policy=user-gesture-required");
+        }
+        if (types.contains("fonts")) {
+            options.addArguments("--disable-remote-fonts");
+        }
+        String pac = getProxyAutoConfig();
+        if (pac != null) {
+            options.addArguments("--proxy-pac-url=" + pac);
+        }
+    }
+
+    /**
+     * Apply this policy to the profile of Firefox.
+     * @param profile profile of Firefox.
+     * @return true if preferences are set to the profile.
+     */
+    boolean apply(FirefoxProfile profile) {
+        if (types.contains("images")) {
+            profile.setPreference("permissions.default.image", 2);
+        }
+        if (types.contains("media")) {
+            profile.setPreference("media.autoplay.default", 1);
+            profile.setPreference("media.preload.default", 0);
+        }
+        if (types.contains("fonts")) {
+            profile.setPreference("gfx.downloadable_fonts.enabled", false);
+        }
+        String pac = getProxyAutoConfig();
+        if (pac != null) {
+            profile.setPreference("network.proxy.type", 2);
+            profile.setPreference("network.proxy.autoconfig_url", pac);
+        }
+        return isBlocking();
+    }
+
+    /**
+     * Create the proxy auto-config script (data URL) to block hosts and URLs.
+     * @return data URL (null if no hosts and URLs are blocked).
+     */
+    private String getProxyAutoConfig() {
+        if (blockHosts.isEmpty() && blockUrls.isEmpty() && allowHosts.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("function FindProxyForURL(url, host) {");
+        if (!allowHosts.isEmpty()) {
+            sb.append("if (!(").append(conditions("host", allowHosts)).append(")) return '").append(BLOCKED).append("';");
+        }
+        if (!blockHosts.isEmpty()) {
+            sb.append("if (").append(conditions("host", blockHosts)).append(") return '").append(BLOCKED).append("';");
+        }
+        if (!blockUrls.isEmpty()) {
+            sb.append("if (").append(conditions("url", blockUrls)).append(") return '").append(BLOCKED).append("';");
+        }
+        sb.append("return 'DIRECT';}");
+        return "data:application/x-ns-proxy-autoconfig;base64,"
+                + Base64.getEncoder().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String conditions(String variable, List<String> patterns) {
+        StringBuilder sb = new StringBuilder();
+        for (String pattern : patterns) {
+            if (sb.length() > 0) {
+                sb.append(" || ");
+            }
+            sb.append("shExpMatch(").append(variable).append(", '")
+                    .append(pattern.replace("\\", "\\\\").replace("'", "\\'")).append("')");
+        }
+        return sb.toString();
+    }
+
+    private static List<String> split(String value) {
+        List<String> list = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().equals("")) {
+                list.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+}
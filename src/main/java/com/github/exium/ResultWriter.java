@@ -0,0 +1,312 @@
+package com.github.exium;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Write test results to the result file.
+ * Results are kept in memory and flushed by a background thread (every N cases, every T milliseconds,
+ * and on shutdown). The file is written to a temporary file and renamed, so it is never half-written.
+ */
+class ResultWriter {
+
+    private Workbook wb;
+    private Object lock;            // lock for the workbook (the workbook itself if exists)
+    private String testFilename;
+    private String resultFilename;
+    private Logger logger;
+    private int flushCases;         // flush after this number of cases (0: disabled)
+    private int flushInterval;      // flush after this milliseconds (0: disabled)
+    private List<Result> pending = new ArrayList<>();
+    private int completedCases = 0;
+    private boolean flushRequested = false;
+    private boolean running = false;
+    private Thread thread;
+    private Thread hook;
+
+    /**
+     * Constructor of ResultWriter class.
+     * @param wb workbook of the checklist. All accesses to it must be synchronized on it.
+     * @param resultFilename result file name (argument of "-r" option)
+     */
+    ResultWriter(Workbook wb, String resultFilename) {
+        this(wb, null, resultFilename);
+    }
+
+    /**
+     * Constructor of ResultWriter class (for streaming mode).
+     * The result file is created by copying the checklist, and it is loaded only while writing.
+     * @param testFilename checklist file name (argument of "-c" option)
+     * @param resultFilename result file name (argument of "-r" option)
+     */
+    ResultWriter(String testFilename, String resultFilename) {
+        this(null, testFilename, resultFilename);
+    }
+
+    private ResultWriter(Workbook wb, String testFilename, String resultFilename) {
+        this.wb = wb;
+        this.lock = (wb != null) ? wb : new Object();
+        this.testFilename = testFilename;
+        this.resultFilename = resultFilename;
+        this.logger = Exium.logger;
+        Configurator conf = Exium.conf;
+        flushCases = conf.getIntProperty("excel.common.flush_cases");
+        flushInterval = conf.getIntProperty("excel.common.flush_interval");
+    }
+
+    /**
+     * Create the result file and start the background writer.
+     * @return true: success, false: error(can't create result file)
+     */
+    boolean open() {
+        if (wb == null) {
+            // copy the checklist
+            Path target = new File(resultFilename).getAbsoluteFile().toPath();
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                Files.copy(new File(testFilename).toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+                move(tmp, target);
+            } catch (Exception e) {
+                logger.log("message.error.cant_write_file", e, resultFilename);
+                return false;
+            }
+        } else if (!write()) {
+            return false;
+        }
+
+        // background writer
+        running = true;
+        thread = new Thread(this::run, "ResultWriter");
+        thread.setDaemon(true);
+        thread.start();
+
+        // flush on shutdown (include abnormal termination)
+        hook = new Thread(this::flush, "ResultWriter-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        return true;
+    }
+
+    /**
+     * Record the result of a cell. It is written at the next flush.
+     * @param sheetName name of target sheet.
+     * @param row row index of target cell.
+     * @param col column index of target cell.
+     * @param value result string ("OK", "NG", etc...)
+     */
+    synchronized void record(String sheetName, int row, int col, String value) {
+        pending.add(new Result(sheetName, row, col, value));
+    }
+
+    /**
+     * Notify the completion of a test case (it may trigger a flush).
+     */
+    synchronized void completeCase() {
+        completedCases++;
+        if ((flushCases > 0) && (completedCases >= flushCases)) {
+            flushRequested = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Write the pending results to the result file (if exists).
+     */
+    void flush() {
+        synchronized (lock) {
+            synchronized (this) {
+                if (pending.size() == 0) {
+                    completedCases = 0;
+                    flushRequested = false;
+                    return;
+                }
+            }
+            write();
+        }
+    }
+
+    /**
+     * Apply the pending results to the workbook and write it to the result file.
+     * @return true: success, false: error(can't write)
+     */
+    boolean write() {
+        synchronized (lock) {
+            // take pending results
+            List<Result> results;
+            synchronized (this) {
+                results = pending;
+                pending = new ArrayList<>();
+                completedCases = 0;
+                flushRequested = false;
+            }
+
+            long start = System.nanoTime();
+            Path target = new File(resultFilename).getAbsoluteFile().toPath();
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Workbook book = wb;
+            try {
+                // streaming mode: load the result file only while writing
+                if (book == null) {
+                    if (results.size() == 0) {
+                        return true;
+                    }
+                    try (InputStream in = Files.newInputStream(target)) {
+                        book = WorkbookFactory.create(in);
+                    }
+                }
+
+                // apply to cells
+                apply(book, results);
+
+                // write to temporary file and rename it
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    book.write(out);
+                }
+                move(tmp, target);
+                Exium.metrics.record("result_save", null, "", start);
+            } catch (Exception e) {
+                logger.log("message.error.cant_write_file", e, resultFilename);
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (Exception ignore) {
+                    // do nothing
+                }
+                return false;
+            } finally {
+                if ((wb == null) && (book != null)) {
+                    try {
+                        book.close();
+                    } catch (Exception ignore) {
+                        // do nothing
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the results to cells of the workbook.
+     * @param book target workbook.
+     * @param results results of cells.
+     */
+    private void apply(Workbook book, List<Result> results) {
+        for (Result result : results) {
+            Sheet sheet = book.getSheet(result.sheetName);
+            if (sheet == null) {
+                continue;
+            }
+            Row row = sheet.getRow(result.row);
+            if (row == null) {
+                row = sheet.createRow(result.row);
+            }
+            Cell cell = row.getCell(result.col);
+            if (cell == null) {
+                cell = row.createCell(result.col);
+            } else {
+                // XSSF keeps an inline string (ex. written by SXSSF) with the new value, so clear the cell at first
+                cell.setCellType(CellType.BLANK);
+            }
+            cell.setCellValue(result.value);
+        }
+    }
+
+    /**
+     * Rename the temporary file to the target (atomically if supported).
+     * @param tmp temporary file.
+     * @param target target file.
+     * @throws Exception if can't rename.
+     */
+    private void move(Path tmp, Path target) throws Exception {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stop the background writer and write all pending results.
+     */
+    void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        if (hook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException ignore) {
+                // already in shutdown
+            }
+            hook = null;
+        }
+        write();
+    }
+
+    /**
+     * Main loop of the background writer.
+     */
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + flushInterval;
+                while (running && !flushRequested) {
+                    long remain = deadline - System.currentTimeMillis();
+                    if ((flushInterval > 0) && (remain <= 0)) {
+                        break;
+                    }
+                    try {
+                        wait((flushInterval > 0) ? remain : 0);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Result of a cell
+     */
+    private static class Result {
+        String sheetName;
+        int row;
+        int col;
+        String value;
+
+        Result(String sheetName, int row, int col, String value) {
+            this.sheetName = sheetName;
+            this.row = row;
+            this.col = col;
+            this.value = value;
+        }
+    }
+
+}
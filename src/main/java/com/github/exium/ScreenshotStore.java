@@ -0,0 +1,165 @@
+package com.github.exium;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Content addressed store of screenshots.
+ * Each unique image (by SHA-256 of the taken bytes) is stored once as "(store)/(first 2 digits)/(hash).png",
+ * and the file name of "Capture" is linked to it:
+ * <ul>
+ *     <li>hard: hard link (copied if the file system doesn't support it)</li>
+ *     <li>copy: copy of the stored image</li>
+ *     <li>none: not created (recorded in the manifest only)</li>
+ * </ul>
+ * The manifest "(store)/manifest.csv" records the file name, hash and size of each capture (appended by each run).
+ */
+class ScreenshotStore {
+
+    private Logger logger;
+    private Path root;
+    private String link;
+    private CSVPrinter printer = null;                          // manifest
+    private Map<String, Long> stored = new ConcurrentHashMap<>();  // hash -> size of stored image (used in this run)
+    private AtomicInteger captures = new AtomicInteger();
+
+    /**
+     * Constructor of ScreenshotStore class.
+     * @param dir directory of the store.
+     * @param link how to create the file of "Capture" (hard, copy or none).
+     */
+    ScreenshotStore(String dir, String link) {
+        this.logger = Exium.logger;
+        this.root = new File(dir).getAbsoluteFile().toPath();
+        this.link = link.toLowerCase();
+    }
+
+    /**
+     * Store the image and create the file (by the link mode).
+     * @param filename file name of "Capture".
+     * @param image PNG image.
+     * @param level compression level of stored image (-1: as it is).
+     * @throws IOException if the file can't be written.
+     */
+    void save(String filename, byte[] image, int level) throws IOException {
+        String hash = sha256(image);
+        Path blob = root.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+
+        // store the image once (the same image in parallel waits for it)
+        long size;
+        try {
+            size = stored.computeIfAbsent(hash, h -> storeImage(blob, image, level));
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+
+        // create the file
+        Path target = new File(filename).getAbsoluteFile().toPath();
+        if (!link.equals("none")) {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            Files.deleteIfExists(target);
+            boolean isLinked = false;
+            if (link.equals("hard")) {
+                try {
+                    Files.createLink(target, blob);
+                    isLinked = true;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // ex. another file system
+                }
+            }
+            if (!isLinked) {
+                Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        captures.incrementAndGet();
+        record(target.toString(), hash, size);
+    }
+
+    /**
+     * Close the manifest and output the summary.
+     */
+    synchronized void close() {
+        try {
+            if (printer != null) {
+                printer.close();
+            }
+        } catch (IOException e) {
+            logger.log("message.error.cant_write_file", root.resolve("manifest.csv").toString());
+        }
+        printer = null;
+        if (captures.get() > 0) {
+            logger.log("message.info.screenshot_store", Integer.toString(captures.get()),
+                    Integer.toString(stored.size()), root.toString());
+        }
+    }
+
+    /**
+     * Append a line to the manifest.
+     */
+    private synchronized void record(String filename, String hash, long size) throws IOException {
+        if (printer == null) {
+            Files.createDirectories(root);
+            Path path = root.resolve("manifest.csv");
+            boolean isNew = !Files.exists(path);
+            BufferedWriter manifest = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            printer = new CSVPrinter(manifest, CSVFormat.EXCEL);
+            if (isNew) {
+                printer.printRecord("filename", "sha256", "bytes");
+            }
+        }
+        printer.printRecord(filename, hash, size);
+    }
+
+    /**
+     * Store the image (if not stored by the previous runs).
+     * @return size of the stored image.
+     */
+    private static long storeImage(Path blob, byte[] image, int level) {
+        try {
+            if (!Files.exists(blob)) {
+                byte[] data = (level >= 0) ? PngCompressor.recompress(image, level) : image;
+                Files.createDirectories(blob.getParent());
+                Path tmp = blob.resolveSibling(blob.getFileName() + ".tmp");
+                Files.write(tmp, data);
+                Files.move(tmp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return Files.size(blob);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static String sha256(byte[] image) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(image);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            // SHA-256 is always supported
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.github.exium;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write screenshots to files by background threads (shared by all runners).
+ * The number of screenshots waiting to be written is bounded, so "Capture" waits if the queue is full.
+ * If the number of threads is 0, screenshots are written by the caller.
+ * Errors of asynchronous writing are reported to the caller by the callback (the result of "Capture" becomes NG).
+ * If the store directory is specified, screenshots are saved through ScreenshotStore (each unique image once).
+ */
+class ScreenshotWriter {
+
+    private Logger logger;
+    private ExecutorService executor = null;    // null: write synchronously
+    private Semaphore slots;                    // free slots of the queue
+    private ScreenshotStore store = null;       // null: write each file as it is
+    private int compression;                    // compression level of PNG (-1: as it is taken)
+
+    /**
+     * Constructor of ScreenshotWriter class.
+     */
+    ScreenshotWriter() {
+        this.logger = Exium.logger;
+        Configurator conf = Exium.conf;
+        int threads = conf.getIntProperty("webdriver.capture.writer_threads");
+        int queue = conf.getIntProperty("webdriver.capture.writer_queue");
+        compression = Math.min(conf.getIntProperty("webdriver.capture.compression"), 9);
+        String dir = conf.getStringProperty("webdriver.capture.store_dir");
+        if (!dir.equals("")) {
+            store = new ScreenshotStore(dir, conf.getStringProperty("webdriver.capture.store_link"));
+        }
+        if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "ScreenshotWriter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            slots = new Semaphore(Math.max(queue, 1));
+        }
+    }
+
+    /**
+     * Write the screenshot (asynchronously if enabled).
+     * Errors of asynchronous writing are output to the log, and the callback is called.
+     * @param filename file name.
+     * @param image PNG image.
+     * @param onFailure called by the writer thread if asynchronous writing fails (null if not needed).
+     * @return true: success (or queued), false: error
+     */
+    boolean write(String filename, byte[] image, Runnable onFailure) {
+        if (executor == null) {
+            return writeFile(filename, image);
+        }
+        try {
+            // backpressure: wait until a slot is free
+            slots.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!writeFile(filename, image) && (onFailure != null)) {
+                        onFailure.run();
+                    }
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException re) {
+            // already closed
+            slots.release();
+            return writeFile(filename, image);
+        }
+        return true;
+    }
+
+    /**
+     * Wait for all queued screenshots to be written, and stop the threads.
+     */
+    void close() {
+        if (executor != null) {
+            awaitTermination();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void awaitTermination() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Exium.conf.getIntProperty("webdriver.common.timeout"), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the file through a channel (parent directories are created).
+     * @param filename file name.
+     * @param image PNG image.
+     * @return true: success, false: error
+     */
+    private boolean writeFile(String filename, byte[] image) {
+        try {
+            if (store != null) {
+                store.save(filename, image, compression);
+                return true;
+            }
+            Path path = new File(filename).getAbsoluteFile().toPath();
+            ByteBuffer buffer = ByteBuffer.wrap((compression >= 0) ? PngCompressor.recompress(image, compression) : image);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (Exception e) {
+            logger.log("message.error.cant_write_file", e, filename);
+            return false;
+        }
+        return true;
+    }
+
+}
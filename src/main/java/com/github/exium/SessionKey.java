@@ -0,0 +1,175 @@
+package com.github.exium;
+
+/**
+ * Key of a browser session (browser, device, user agent, launch profile, resource policy, page load strategy).
+ * Sessions with the same key are interchangeable.
+ */
+final class SessionKey {
+
+    private final String browser;
+    private final String device;
+    private final String userAgent;
+    private final String deviceNameOnChrome;
+    private final String profile;
+    private final String policy;
+    private final String pageLoadStrategy;
+
+    /**
+     * Constructor of SessionKey class.
+     * @param browser browser name ("chrome", "firefox", "ie", "safari").
+     * @param device device title ("" if not specified).
+     * @param userAgent user agent of the device ("" if not specified).
+     * @param deviceNameOnChrome device name for mobile emulation of Chrome ("" if not specified).
+     * @param profile name of the launch profile ("" if not applied).
+     * @param policy name of the resource policy ("" if not applied).
+     * @param pageLoadStrategy page load strategy ("normal", "eager", "none", "" if not applied).
+     */
+    SessionKey(String browser, String device, String userAgent, String deviceNameOnChrome, String profile,
+               String policy, String pageLoadStrategy) {
+        this.browser = browser.toLowerCase();
+        this.device = device.toLowerCase();
+        this.userAgent = userAgent;
+        this.deviceNameOnChrome = deviceNameOnChrome;
+        this.profile = profile.toLowerCase();
+        this.policy = policy.toLowerCase();
+        this.pageLoadStrategy = pageLoadStrategy.toLowerCase();
+    }
+
+    /**
+     * Create the key of a browser (the device, user agent, profile, policy and strategy are applied only to the browser supports them).
+     * @param browser browser name.
+     * @param device device title ("" if not specified).
+     * @param userAgent user agent of the device ("" if not specified).
+     * @param deviceNameOnChrome device name for mobile emulation of Chrome ("" if not specified).
+     * @param profile name of the launch profile.
+     * @param policy name of the resource policy.
+     * @param pageLoadStrategy page load strategy.
+     * @return key.
+     */
+    static SessionKey of(String browser, String device, String userAgent, String deviceNameOnChrome, String profile,
+                         String policy, String pageLoadStrategy) {
+        if (browser.equalsIgnoreCase("chrome")) {
+            return new SessionKey(browser, device, userAgent, deviceNameOnChrome, profile, policy, pageLoadStrategy);
+        } else if (browser.equalsIgnoreCase("firefox")) {
+            return new SessionKey(browser, device, userAgent, "", profile, policy, pageLoadStrategy);
+        }
+        // note: don't apply device, userAgent, profile, policy and strategy even if user defined
+        return new SessionKey(browser, "", "", "", "", "", "");
+    }
+
+    /**
+     * Create the key of a browser opened by "Open" command.
+     * @param conf configurator (devices, profiles and policies).
+     * @param browser browser name.
+     * @param device device title ("" if not specified).
+     * @param render parameter "render" ("full": without blocking resources).
+     * @param pageLoad parameter "page_load" (the default strategy if "" or invalid).
+     * @return key.
+     */
+    static SessionKey forOpen(Configurator conf, String browser, String device, String render, String pageLoad) {
+        String userAgent = "";
+        String deviceNameOnChrome = "";
+        DeviceRegistry.Device found = conf.getDevices().find(device);
+        if (found != null) {
+            userAgent = found.getUserAgent();
+            deviceNameOnChrome = found.getDeviceNameOnChrome();
+        }
+        String policy = "full".equalsIgnoreCase(render) ? ResourcePolicy.NONE : conf.getPolicyName(found);
+        String strategy = isPageLoadStrategy(pageLoad) ? pageLoad
+                : conf.getStringProperty("webdriver.common.page_load_strategy");
+        return of(browser, device, userAgent, deviceNameOnChrome, conf.getProfileName(found), policy, strategy);
+    }
+
+    /**
+     * Whether the value is a page load strategy or not.
+     * @param value value.
+     * @return true if "normal", "eager" or "none" (ignore case).
+     */
+    static boolean isPageLoadStrategy(String value) {
+        return (value != null) && (value.equalsIgnoreCase("normal") || value.equalsIgnoreCase("eager")
+                || value.equalsIgnoreCase("none"));
+    }
+
+    /**
+     * Create the key of the same browser with another resource policy.
+     * @param policy name of the resource policy.
+     * @return key.
+     */
+    SessionKey withPolicy(String policy) {
+        if (this.policy.equals("")) {
+            return this;
+        }
+        return new SessionKey(browser, device, userAgent, deviceNameOnChrome, profile, policy, pageLoadStrategy);
+    }
+
+    String getBrowser() {
+        return browser;
+    }
+
+    String getDevice() {
+        return device;
+    }
+
+    String getUserAgent() {
+        return userAgent;
+    }
+
+    String getDeviceNameOnChrome() {
+        return deviceNameOnChrome;
+    }
+
+    String getProfile() {
+        return profile;
+    }
+
+    String getPolicy() {
+        return policy;
+    }
+
+    String getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SessionKey)) {
+            return false;
+        }
+        SessionKey other = (SessionKey)obj;
+        return browser.equals(other.browser) && device.equals(other.device)
+                && userAgent.equals(other.userAgent) && deviceNameOnChrome.equals(other.deviceNameOnChrome)
+                && profile.equals(other.profile) && policy.equals(other.policy)
+                && pageLoadStrategy.equals(other.pageLoadStrategy);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = browser.hashCode();
+        hash = 31 * hash + device.hashCode();
+        hash = 31 * hash + userAgent.hashCode();
+        hash = 31 * hash + deviceNameOnChrome.hashCode();
+        hash = 31 * hash + profile.hashCode();
+        hash = 31 * hash + policy.hashCode();
+        hash = 31 * hash + pageLoadStrategy.hashCode();
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        String name = device.equals("") ? browser : browser + "/" + device;
+        if (!profile.equals("") && !profile.equals(LaunchProfile.DEFAULT)) {
+            name += "[" + profile + "]";
+        }
+        if (!policy.equals("") && !policy.equals(ResourcePolicy.NONE)) {
+            name += "{" + policy + "}";
+        }
+        if (!pageLoadStrategy.equals("") && !pageLoadStrategy.equals("normal")) {
+            name += "<" + pageLoadStrategy + ">";
+        }
+        return name;
+    }
+
+}
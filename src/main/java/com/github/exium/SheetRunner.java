@@ -0,0 +1,381 @@
+package com.github.exium;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Execute test cases of a sheet.
+ * A runner has its own WebDriverController (and drivers), so each worker of parallel execution uses its own runner.
+ * Independent chains of cases (see CaseScheduler) can be executed in parallel by runners for each chain.
+ */
+class SheetRunner {
+
+    private Logger logger;
+    private Metrics metrics;
+    private WebDriverController wdc;
+    private ResultWriter writer;
+    private BrowserPool pool;
+    private ScreenshotWriter screenshots;
+    private PageMetrics pageMetrics;
+    private int parallelCases;      // max number of chains executed in parallel
+    private boolean fastFill;       // execute runs of Input/Select commands by one script
+    private ArrayList<String[]> listCommandParameter = new ArrayList<>();   // reused by each command
+    private CaseResult caseResult;  // result of the executing case
+
+    /**
+     * Constructor of SheetRunner class.
+     * @param writer writer of the result file (shared by all runners).
+     * @param pool pool of browsers (shared by all runners).
+     * @param screenshots writer of screenshots (shared by all runners).
+     * @param pageMetrics performance of pages (shared by all runners).
+     */
+    SheetRunner(ResultWriter writer, BrowserPool pool, ScreenshotWriter screenshots, PageMetrics pageMetrics) {
+        this.logger = Exium.logger;
+        this.metrics = Exium.metrics;
+        this.wdc = new WebDriverController(pool, screenshots, pageMetrics);
+        this.writer = writer;
+        this.pool = pool;
+        this.screenshots = screenshots;
+        this.pageMetrics = pageMetrics;
+        this.parallelCases = Exium.conf.getIntProperty("excel.common.parallel_cases");
+        this.fastFill = Exium.conf.getBooleanProperty("webdriver.common.fast_fill");
+    }
+
+    /**
+     * execute test cases in a sheet.
+     * @param cs contents of the sheet.
+     */
+    void run(ChecklistSheet cs) {
+        // compile the test scenario
+        TestPlan plan = TestPlan.compile(cs);
+
+        // execute test cases (browsers not used by "SwitchBrowser" are returned to the pool early)
+        Set<String> retainedCases = CaseScheduler.switchTargets(plan);
+        List<int[]> chains = (parallelCases > 1) ? CaseScheduler.chains(plan) : null;
+        if ((chains == null) || (chains.size() < 2)) {
+            int[] cases = new int[plan.getCaseCount()];
+            for (int i = 0; i < cases.length; i++) {
+                cases[i] = i;
+            }
+            runCases(plan, cases, retainedCases);
+        } else {
+            runChains(plan, chains, retainedCases);
+        }
+
+        logger.log("message.info.complete_sheet", plan.getName());
+    }
+
+    /**
+     * execute test cases in order (and terminate the browsers).
+     * @param plan test plan of the sheet.
+     * @param cases indexes of cases.
+     * @param retainedCases case numbers used by "SwitchBrowser".
+     */
+    private void runCases(TestPlan plan, int[] cases, Set<String> retainedCases) {
+        wdc.setRetainedCases(retainedCases);
+        // iterate by case number
+        for (int i : cases) {
+            String strCaseNumber = plan.getCaseNumber(i);
+
+            // execute test case
+            logger.log("message.info.start_case", strCaseNumber);
+            long start = System.nanoTime();
+            caseResult = new CaseResult(plan.getName());
+            executeTestCase(plan, i);
+            metrics.record("case", "sheet", plan.getName(), start);
+            caseResult.count();
+            wdc.terminateTestCase(strCaseNumber);
+            logger.log("message.info.complete_case", strCaseNumber);
+        }
+
+        wdc.terminate();
+    }
+
+    /**
+     * execute chains of test cases in parallel (a runner for each chain).
+     * The logs of each chain are output together in order of the chains.
+     * @param plan test plan of the sheet.
+     * @param chains chains of cases.
+     * @param retainedCases case numbers used by "SwitchBrowser".
+     */
+    private void runChains(TestPlan plan, List<int[]> chains, Set<String> retainedCases) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelCases, chains.size()));
+        List<Future<Logger.LogGroup>> futures = new ArrayList<>();
+        for (int[] chain : chains) {
+            futures.add(executor.submit(() -> {
+                logger.startGroup();
+                try {
+                    new SheetRunner(writer, pool, screenshots, pageMetrics).runCases(plan, chain, retainedCases);
+                } catch (Exception e) {
+                    logger.log("message.error.unexpected", e);
+                }
+                return logger.leaveGroup();
+            }));
+        }
+        executor.shutdown();
+
+        for (Future<Logger.LogGroup> future : futures) {
+            try {
+                logger.appendGroup(future.get());
+            } catch (InterruptedException ie) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.log("message.error.unexpected", e);
+            }
+        }
+    }
+
+    /**
+     * Execute each command using checked parameter.
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case (0 is the first case).
+     */
+    private void executeTestCase(TestPlan plan, int caseIndex) {
+
+        String strCaseNum = plan.getCaseNumber(caseIndex);
+        TestCommand[] commands = plan.getCommands();
+        boolean rc;
+
+        // loop in test plan (commands).
+        for (int c = 0; c < commands.length; c++) {
+            TestCommand command = commands[c];
+
+            // fast fill mode: execute the run of Input/Select commands together
+            if (fastFill && (plan.getFillRunEnd(c) > c + 1)) {
+                int next = executeFillRun(plan, caseIndex, c, plan.getFillRunEnd(c));
+                if (next > c) {
+                    // the rest of the run (if exists) is executed one by one
+                    c = next - 1;
+                    continue;
+                }
+            }
+
+            // create parameters and values to use (only checked rows)
+            if (!getCheckedParameters(plan, caseIndex, command, listCommandParameter)) {
+                // not need execute command
+                continue;
+            }
+
+            // execute command
+            LateResult late = null;
+            if (command.getType() == CommandType.UNKNOWN) {
+                // If unknown command, skip this command
+                logger.log("message.warn.unknown_command", strCaseNum, command.getName());
+                rc = false;
+            } else {
+                long start = System.nanoTime();
+                // the screenshot may fail to be written after the command
+                if (command.getType() == CommandType.CAPTURE) {
+                    late = new LateResult(plan, caseIndex, command);
+                }
+                wdc.setCommand(command, late);
+                try {
+                    rc = command.getType().execute(wdc, listCommandParameter, strCaseNum, plan);
+                } catch (Exception e) {
+                    logger.log("message.warn.command_exec_fail", e, strCaseNum, command.getName());
+                    rc = false;
+                }
+                metrics.record("command", "command", command.getName(), start);
+                // measure the performance of the page (if navigated)
+                if (rc && pageMetrics.isMeasured(command, listCommandParameter)) {
+                    wdc.measurePage(plan, strCaseNum, true);
+                }
+            }
+
+            // record the result (ResultWriter writes it to result file)
+            if (late != null) {
+                late.record(rc);
+            } else {
+                recordResult(plan, caseIndex, command, rc);
+            }
+        }
+        // notify the end of the case (the result file is written by ResultWriter)
+        writer.completeCase();
+    }
+
+    /**
+     * Execute a run of Input/Select commands by one script (fast fill mode).
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case (0 is the first case).
+     * @param start index of the first command of the run.
+     * @param end index of the next command of the run.
+     * @return index of the next command to execute one by one (start if nothing was executed).
+     */
+    private int executeFillRun(TestPlan plan, int caseIndex, int start, int end) {
+        TestCommand[] commands = plan.getCommands();
+        List<Integer> listIndex = new ArrayList<>();
+        List<TestCommand> listCommand = new ArrayList<>();
+        List<List<String[]>> listParameters = new ArrayList<>();
+        for (int c = start; c < end; c++) {
+            ArrayList<String[]> parameters = new ArrayList<>();
+            if (getCheckedParameters(plan, caseIndex, commands[c], parameters)) {
+                listIndex.add(c);
+                listCommand.add(commands[c]);
+                listParameters.add(parameters);
+            }
+        }
+        if (listCommand.size() == 0) {
+            return end;
+        }
+
+        // execute and record the results (null: not executed)
+        long begin = System.nanoTime();
+        Boolean[] results = wdc.executeFill(listCommand, listParameters, plan.getCaseNumber(caseIndex));
+        metrics.record("command", "command", "fill", begin);
+        for (int i = 0; i < listCommand.size(); i++) {
+            if (results[i] == null) {
+                return listIndex.get(i);
+            }
+            recordResult(plan, caseIndex, listCommand.get(i), results[i]);
+        }
+        return end;
+    }
+
+    /**
+     * Get parameters and values to use (only checked rows).
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case (0 is the first case).
+     * @param command target command.
+     * @param list list to store parameters (cleared at first).
+     * @return true: need to execute the command, false: no checked row
+     */
+    private boolean getCheckedParameters(TestPlan plan, int caseIndex, TestCommand command, List<String[]> list) {
+        CaseMatrix matrix = plan.getMatrix();
+        list.clear();
+        for (int i = 0; i < command.getRowCount(); i++) {
+            if (matrix.isChecked(command.getRowStart() + i, caseIndex)) {
+                list.add(command.getParameter(i));
+            }
+        }
+        return list.size() > 0;
+    }
+
+    /**
+     * Record the result of the command to each checked row (ResultWriter writes it to result file).
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case (0 is the first case).
+     * @param command executed command.
+     * @param rc result of the command.
+     */
+    private void recordResult(TestPlan plan, int caseIndex, TestCommand command, boolean rc) {
+        metrics.count("command", "command", command.getName(), rc);
+        if (!rc) {
+            caseResult.fail();
+        }
+        writeResult(plan, caseIndex, command, rc);
+    }
+
+    /**
+     * Write the result of the command to each checked row (ResultWriter writes it to result file).
+     * @param plan test plan of the sheet.
+     * @param caseIndex index of the case (0 is the first case).
+     * @param command executed command.
+     * @param rc result of the command.
+     */
+    private void writeResult(TestPlan plan, int caseIndex, TestCommand command, boolean rc) {
+        CaseMatrix matrix = plan.getMatrix();
+        for (int i = 0; i < command.getRowCount(); i++) {
+            int row = command.getRowStart() + i;
+            if (!matrix.isChecked(row, caseIndex)) {
+                continue;
+            }
+            String result;
+            if (matrix.isJapanese(row, caseIndex)) {
+                // Japanese type
+                result = rc ? "○" : "×";
+            } else {
+                // Others
+                result = rc ? "OK" : "NG";
+            }
+            writer.record(plan.getName(), plan.getRowStart() + row, plan.getColStart() + caseIndex, result);
+        }
+    }
+
+    /**
+     * Result of a test case. It may become NG after the case is counted (by a late failure of a command).
+     */
+    private class CaseResult {
+
+        private final String sheetName;
+        private boolean ok = true;
+        private boolean counted = false;
+
+        CaseResult(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        /**
+         * The case becomes NG (the count is corrected if already counted).
+         */
+        synchronized void fail() {
+            if (ok && counted) {
+                metrics.recountAsNG("case", "sheet", sheetName);
+            }
+            ok = false;
+        }
+
+        /**
+         * Count the result of the case (at the end of the case).
+         */
+        synchronized void count() {
+            counted = true;
+            metrics.count("case", "sheet", sheetName, ok);
+        }
+    }
+
+    /**
+     * Result of a command which may fail after the command (ex. asynchronous writing of the screenshot).
+     * The failure is reported by another thread, before or after the result is recorded (even after the case),
+     * and the result becomes NG: the cells, the count of the command and the result of the case.
+     */
+    private class LateResult implements Runnable {
+
+        private final TestPlan plan;
+        private final int caseIndex;
+        private final TestCommand command;
+        private final CaseResult caseResult;
+        private boolean recordedOK = false;
+        private boolean failed = false;
+
+        LateResult(TestPlan plan, int caseIndex, TestCommand command) {
+            this.plan = plan;
+            this.caseIndex = caseIndex;
+            this.command = command;
+            this.caseResult = SheetRunner.this.caseResult;
+        }
+
+        /**
+         * Record the result of the command.
+         * @param rc result of the command.
+         */
+        synchronized void record(boolean rc) {
+            recordedOK = rc && !failed;
+            recordResult(plan, caseIndex, command, recordedOK);
+        }
+
+        /**
+         * Report the failure (the recorded result is corrected to NG if it was OK).
+         */
+        @Override
+        public synchronized void run() {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            logger.log("message.warn.command_exec_fail", plan.getCaseNumber(caseIndex), command.getName());
+            if (recordedOK) {
+                recordedOK = false;
+                metrics.recountAsNG("command", "command", command.getName());
+                caseResult.fail();
+                writeResult(plan, caseIndex, command, false);
+            }
+        }
+    }
+
+}
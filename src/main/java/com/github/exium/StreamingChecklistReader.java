@@ -0,0 +1,532 @@
+package com.github.exium;
+
+import java.io.File;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Read checklist sheets with XSSF event model (SAX), one sheet at a time.
+ * Only the named cells and the case matrix are kept, so the memory usage depends on the current sheet.
+ */
+class StreamingChecklistReader {
+
+    private static final String[] TAGS = {"ID", "TITLE", "NO", "COMMAND", "PARAMETER", "VALUE", "CASENUMBER"};
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int NO = 2;
+    private static final int COMMAND = 3;
+    private static final int PARAMETER = 4;
+    private static final int VALUE = 5;
+    private static final int CASENUMBER = 6;
+
+    private String testFilename;
+    private Logger logger;
+    private OPCPackage pkg = null;
+    private ReadOnlySharedStringsTable sst;
+    private StylesTable styles;
+    private XSSFReader.SheetIterator sheets;
+    private List<String[]> listName = new ArrayList<>();  // defined names {name, localSheetId, formula}
+    private boolean date1904 = false;
+    private int sheetIndex = -1;
+    private String sheetName;
+    private InputStream sheetData = null;
+
+    /**
+     * Constructor of StreamingChecklistReader class.
+     * @param testFilename checklist file name (argument of "-c" option)
+     */
+    StreamingChecklistReader(String testFilename) {
+        this.testFilename = testFilename;
+        this.logger = Exium.logger;
+    }
+
+    /**
+     * To open the test file (read shared strings, styles and defined names).
+     * @return true: success, false: error(ex. can't open, invalid file type, etc...)
+     */
+    boolean open() {
+        try {
+            pkg = OPCPackage.open(new File(testFilename), PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            sst = new ReadOnlySharedStringsTable(pkg);
+            styles = reader.getStylesTable();
+            try (InputStream workbookData = reader.getWorkbookData()) {
+                XMLReader parser = SAXHelper.newXMLReader();
+                parser.setContentHandler(new WorkbookHandler());
+                parser.parse(new InputSource(workbookData));
+            }
+            sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        } catch (Exception e) {
+            // cannot open, invalid file type
+            logger.log("message.error.invalid_file", e, testFilename);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Move to the next sheet (without "MasterData" sheet).
+     * @return true: exists, false: no more sheet
+     */
+    boolean nextSheet() {
+        closeSheetData();
+        while (sheets.hasNext()) {
+            sheetData = sheets.next();
+            sheetIndex++;
+            sheetName = sheets.getSheetName();
+
+            // skip MasterData sheet
+            if (sheetName.equalsIgnoreCase("MasterData")) {
+                closeSheetData();
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get name of the current sheet.
+     * @return sheet name
+     */
+    String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * Read contents of the current sheet.
+     * @return contents of the sheet (null if invalid format).
+     */
+    ChecklistSheet read() {
+        // validation existing named cell
+        CellReference[] refs = new CellReference[TAGS.length];
+        boolean rc = true;
+        for (int i = 0; i < TAGS.length; i++) {
+            refs[i] = findNamedCell(TAGS[i]);
+            if (refs[i] == null) {
+                logger.log("message.error.invalid_format", sheetName, TAGS[i]);
+                rc = false;
+            }
+        }
+        if (!rc) {
+            // skip this sheet (because of invalid format)
+            closeSheetData();
+            return null;
+        }
+
+        // parse the sheet
+        SheetHandler handler = new SheetHandler(refs);
+        try {
+            XMLReader parser = SAXHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(sheetData));
+        } catch (StopParsingException spe) {
+            // all needed cells were read
+        } catch (Exception e) {
+            logger.log("message.error.invalid_file", e, testFilename);
+            return null;
+        } finally {
+            closeSheetData();
+        }
+
+        if (!handler.strCaseNumberHeader.equalsIgnoreCase("CaseNo")) {
+            logger.log("message.error.cant_find_case");
+            return null;
+        }
+        // checking for extended format check (need to align these named cells).
+        if (refs[COMMAND].getRow() != refs[PARAMETER].getRow() || refs[COMMAND].getRow() != refs[VALUE].getRow()) {
+            // invalid format(not aligned these rows) therefor skip this sheet
+            logger.log("message.error.invalid_rows");
+            return null;
+        }
+
+        return handler.toChecklistSheet();
+    }
+
+    /**
+     * Close the test file.
+     */
+    void close() {
+        closeSheetData();
+        try {
+            if (pkg != null) {
+                pkg.revert();
+            }
+        } catch (Exception e) {
+            logger.log("message.error.unexpected", e);
+        }
+    }
+
+    /**
+     * Find the named cell. The name defined in the scope of current sheet has priority.
+     * @param tag The name of named cell.
+     * @return reference of the cell (null if not found or invalid).
+     */
+    private CellReference findNamedCell(String tag) {
+        String formula = null;
+        for (String[] name : listName) {
+            if (!name[0].equalsIgnoreCase(tag)) {
+                continue;
+            }
+            if (name[1] == null) {
+                if (formula == null) {
+                    formula = name[2];
+                }
+            } else if (name[1].equals(String.valueOf(sheetIndex))) {
+                formula = name[2];
+                break;
+            }
+        }
+        if (formula == null) {
+            return null;
+        }
+        // use the first cell if area
+        int pos = formula.indexOf(':');
+        if (pos > 0) {
+            formula = formula.substring(0, pos);
+        }
+        try {
+            return new CellReference(formula);
+        } catch (Exception e) {
+            // ex. "#REF!"
+            return null;
+        }
+    }
+
+    /**
+     * Close the input stream of current sheet.
+     */
+    private void closeSheetData() {
+        if (sheetData != null) {
+            try {
+                sheetData.close();
+            } catch (Exception ignore) {
+                // do nothing
+            }
+            sheetData = null;
+        }
+    }
+
+    /**
+     * Get cell value from the raw value of sheet XML (same rule as ExcelParser.getCellValue).
+     * @param type cell type ("t" attribute).
+     * @param style cell style index ("s" attribute).
+     * @param raw raw value.
+     * @param zeroSuppress Need to fill by "0" for Integer.
+     * @return The value in string.
+     */
+    private String getCellValue(String type, int style, String raw, boolean zeroSuppress) {
+        if (raw == null) {
+            return "";
+        }
+        switch (type) {
+            case "s":
+                String entry = sst.getEntryAt(Integer.parseInt(raw.trim()));
+                return (entry != null) ? entry.trim() : "";
+            case "inlineStr":
+            case "str":
+                return raw.trim();
+            case "b":
+                return String.valueOf(raw.trim().equals("1"));
+            case "n":
+                if (raw.trim().equals("")) {
+                    return "";
+                }
+                double value = Double.parseDouble(raw);
+                // change getting function between date and numeric.
+                XSSFCellStyle cellStyle = (style >= 0 && style < styles.getNumCellStyles()) ? styles.getStyleAt(style) : null;
+                if ((cellStyle != null) && DateUtil.isValidExcelDate(value)
+                        && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString())) {
+                    // if date
+                    return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(DateUtil.getJavaDate(value, date1904));
+                }
+                // if numeric
+                if (zeroSuppress) {
+                    return String.format("%03d", (int)value);
+                }
+                return Integer.toString((int)value);
+            case "e":
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * SAX handler for workbook.xml (read defined names and date system).
+     */
+    private class WorkbookHandler extends DefaultHandler {
+
+        private StringBuilder buff = null;
+        private String name;
+        private String localSheetId;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "workbookPr":
+                    String value = attributes.getValue("date1904");
+                    date1904 = (value != null) && (value.equals("1") || value.equalsIgnoreCase("true"));
+                    break;
+                case "definedName":
+                    name = attributes.getValue("name");
+                    localSheetId = attributes.getValue("localSheetId");
+                    buff = new StringBuilder();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (localName.equals("definedName")) {
+                listName.add(new String[]{name, localSheetId, buff.toString()});
+                buff = null;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (buff != null) {
+                buff.append(ch, start, length);
+            }
+        }
+    }
+
+    /**
+     * SAX handler for a sheet (read named cells, test scenario, case numbers and check marks).
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private CellReference[] refs;
+        private int rowHeader;          // row of case numbers
+        private int rowStart;           // row of the first command
+        private int colStart;           // column of the first case
+        private int rowLast;            // the last row of named cells
+
+        // contents of the sheet
+        private String strID = "";
+        private String strTitle = "";
+        private String strCaseNumberHeader = "";
+        private List<String> listCaseNumber = new ArrayList<>();
+        private List<String[]> listRow = new ArrayList<>();       // {number, command, parameter, value}
+        private CaseMatrix matrix;
+        private boolean isCaseNumberComplete = false;
+        private boolean isScenarioComplete = false;
+
+        // current row and cell
+        private int row = -1;
+        private int col = -1;
+        private String[] rowValues;
+        private String[] rowChecks;
+        private String type;
+        private int style;
+        private StringBuilder buff = null;
+
+        SheetHandler(CellReference[] refs) {
+            this.refs = refs;
+            rowHeader = refs[CASENUMBER].getRow() + 1;
+            rowStart = rowHeader + 1;
+            colStart = refs[CASENUMBER].getCol();
+            rowLast = Math.max(Math.max(refs[ID].getRow(), refs[TITLE].getRow()), refs[CASENUMBER].getRow());
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    int next = (r != null) ? Integer.parseInt(r) - 1 : row + 1;
+                    // rows between the previous row and this row are blank
+                    for (int i = row + 1; i < next; i++) {
+                        endRow(i);
+                    }
+                    row = next;
+                    col = -1;
+                    rowValues = new String[]{"", "", "", ""};
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    col = (ref != null) ? new CellReference(ref).getCol() : col + 1;
+                    type = attributes.getValue("t");
+                    if (type == null) {
+                        type = "n";
+                    }
+                    String s = attributes.getValue("s");
+                    style = (s != null) ? Integer.parseInt(s) : -1;
+                    buff = null;
+                    break;
+                case "v":
+                case "t":
+                    if (isTarget(row, col)) {
+                        if (buff == null) {
+                            buff = new StringBuilder();
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "c":
+                    if (buff != null) {
+                        setCell(row, col, buff.toString());
+                        buff = null;
+                    }
+                    break;
+                case "row":
+                    endRow(row);
+                    break;
+                case "sheetData":
+                    endRow(Integer.MAX_VALUE);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (buff != null) {
+                buff.append(ch, start, length);
+            }
+        }
+
+        /**
+         * Whether the cell is needed or not.
+         */
+        private boolean isTarget(int row, int col) {
+            for (int i : new int[]{ID, TITLE, CASENUMBER}) {
+                if (refs[i].getRow() == row && refs[i].getCol() == col) {
+                    return true;
+                }
+            }
+            if (row == rowHeader) {
+                return (col >= colStart) && !isCaseNumberComplete;
+            }
+            if ((row >= rowStart) && !isScenarioComplete) {
+                return (col == refs[NO].getCol()) || (col == refs[COMMAND].getCol()) || (col == refs[PARAMETER].getCol())
+                        || (col == refs[VALUE].getCol()) || (col >= colStart && col < colStart + listCaseNumber.size());
+            }
+            return false;
+        }
+
+        /**
+         * Store the value of a needed cell.
+         */
+        private void setCell(int row, int col, String raw) {
+            if (refs[ID].getRow() == row && refs[ID].getCol() == col) {
+                strID = getCellValue(type, style, raw, false);
+            }
+            if (refs[TITLE].getRow() == row && refs[TITLE].getCol() == col) {
+                strTitle = getCellValue(type, style, raw, false);
+            }
+            if (refs[CASENUMBER].getRow() == row && refs[CASENUMBER].getCol() == col) {
+                strCaseNumberHeader = getCellValue(type, style, raw, false);
+            }
+            if (row == rowHeader) {
+                if (col >= colStart && !isCaseNumberComplete) {
+                    // case numbers continue until a blank cell
+                    String value = getCellValue(type, style, raw, true);
+                    if ((col != colStart + listCaseNumber.size()) || value.equals("")) {
+                        isCaseNumberComplete = true;
+                    } else {
+                        listCaseNumber.add(value);
+                    }
+                }
+                return;
+            }
+            if ((row < rowStart) || isScenarioComplete) {
+                return;
+            }
+            if (col == refs[NO].getCol()) {
+                rowValues[0] = getCellValue(type, style, raw, false);
+            }
+            if (col == refs[COMMAND].getCol()) {
+                rowValues[1] = getCellValue(type, style, raw, false);
+            }
+            if (col == refs[PARAMETER].getCol()) {
+                rowValues[2] = getCellValue(type, style, raw, false);
+            }
+            if (col == refs[VALUE].getCol()) {
+                rowValues[3] = getCellValue(type, style, raw, false);
+            }
+            if ((rowChecks != null) && (col >= colStart) && (col < colStart + listCaseNumber.size())) {
+                // decoded when the row is stored
+                rowChecks[col - colStart] = getCellValue(type, style, raw, false);
+            }
+        }
+
+        /**
+         * End of a row (store the command row, and stop parsing if all needed cells were read).
+         */
+        private void endRow(int row) throws SAXException {
+            if (row >= rowHeader && !isCaseNumberComplete) {
+                isCaseNumberComplete = true;
+                matrix = new CaseMatrix(listCaseNumber.size());
+                rowChecks = new String[listCaseNumber.size()];
+            }
+            if ((row >= rowStart) && !isScenarioComplete) {
+                boolean isBlank = (row != this.row) || rowValues[0].equals("");
+                if (isBlank) {
+                    // Terminate when the number (row index) breaks.
+                    isScenarioComplete = true;
+                } else {
+                    for (int i = 0; (rowChecks != null) && (i < rowChecks.length); i++) {
+                        if (rowChecks[i] != null) {
+                            matrix.set(listRow.size(), i, rowChecks[i]);
+                            rowChecks[i] = null;
+                        }
+                    }
+                    listRow.add(rowValues);
+                }
+            }
+            if (isScenarioComplete && (row >= rowLast)) {
+                throw new StopParsingException();
+            }
+        }
+
+        /**
+         * Create ChecklistSheet from the contents.
+         */
+        private ChecklistSheet toChecklistSheet() {
+            List<String[]> listCommand = new ArrayList<>();
+            for (String[] values : listRow) {
+                listCommand.add(new String[]{values[1], values[2], values[3]});
+            }
+            if (matrix == null) {
+                matrix = new CaseMatrix(listCaseNumber.size());
+            }
+            return new ChecklistSheet(sheetName, strID, strTitle, listCommand, listCaseNumber, matrix, rowStart, colStart);
+        }
+    }
+
+    /**
+     * Thrown to stop parsing the rest of a sheet.
+     */
+    private static class StopParsingException extends SAXException {
+        private static final long serialVersionUID = 1L;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.github.exium;
+
+/**
+ * A command of the test plan (a command row and its following parameter rows).
+ */
+final class TestCommand {
+
+    private final int id;
+    private final CommandType type;
+    private final String name;              // command name in lower case
+    private final int rowStart;             // index of the first row in the scenario
+    private final String[][] parameters;    // {parameter, value} of each row
+
+    TestCommand(int id, CommandType type, String name, int rowStart, String[][] parameters) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.rowStart = rowStart;
+        this.parameters = parameters;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    CommandType getType() {
+        return type;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getRowStart() {
+        return rowStart;
+    }
+
+    int getRowCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Get parameter and value of the row.
+     * @param row index of the row in this command (0 is the command row).
+     * @return {parameter, value}
+     */
+    String[] getParameter(int row) {
+        return parameters[row];
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.github.exium;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled test plan of a sheet (typed commands with grouped parameters, case numbers and check marks).
+ */
+final class TestPlan {
+
+    private final String name;
+    private final String strID;
+    private final String strTitle;
+    private final TestCommand[] commands;
+    private final String[] caseNumbers;
+    private final CaseMatrix matrix;
+    private final int rowStart;
+    private final int colStart;
+    private final int maxRowCount;          // max number of rows in a command
+    private final int[] fillRunEnds;        // end (exclusive) of the run of Input/Select commands from each command
+    private final Map<String, FilenameTemplate> templates = new HashMap<>();   // file names of "Capture"
+
+    private TestPlan(ChecklistSheet sheet, TestCommand[] commands) {
+        this.name = sheet.getName();
+        this.strID = sheet.getID();
+        this.strTitle = sheet.getTitle();
+        this.commands = commands;
+        this.caseNumbers = sheet.getCaseNumbers().toArray(new String[0]);
+        this.matrix = sheet.getMatrix();
+        this.rowStart = sheet.getRowStart();
+        this.colStart = sheet.getColStart();
+        int max = 0;
+        for (TestCommand command : commands) {
+            max = Math.max(max, command.getRowCount());
+        }
+        this.maxRowCount = max;
+
+        // detect runs of Input/Select commands (they don't navigate, so can be executed together)
+        this.fillRunEnds = new int[commands.length];
+        for (int i = commands.length - 1; i >= 0; i--) {
+            if (isFillCommand(commands[i]) && (i + 1 < commands.length) && isFillCommand(commands[i + 1])) {
+                fillRunEnds[i] = fillRunEnds[i + 1];
+            } else {
+                fillRunEnds[i] = i + 1;
+            }
+        }
+
+        // compile file names of "Capture" (read only after here, so shared by runners)
+        for (TestCommand command : commands) {
+            if (command.getType() != CommandType.CAPTURE) {
+                continue;
+            }
+            for (int i = 0; i < command.getRowCount(); i++) {
+                String[] param = command.getParameter(i);
+                if (param[0].equals("filename") && (param[1] != null)) {
+                    templates.computeIfAbsent(param[1], FilenameTemplate::compile);
+                }
+            }
+        }
+    }
+
+    private static boolean isFillCommand(TestCommand command) {
+        return (command.getType() == CommandType.INPUT) || (command.getType() == CommandType.SELECT);
+    }
+
+    /**
+     * Compile the test scenario of the sheet.
+     * A command continues until the next command name. Blank command and parameter are the same as the above row.
+     * @param sheet contents of the sheet.
+     * @return test plan
+     */
+    static TestPlan compile(ChecklistSheet sheet) {
+        List<String[]> listRow = sheet.getRows();
+        List<TestCommand> listCommand = new ArrayList<>();
+        int numCommandID = 0;
+        String strCommand = "";
+        String strParameter = "";
+        int rowStart = 0;
+        List<String[]> listParameter = new ArrayList<>();
+        for (int row = 0; row < listRow.size(); row++) {
+            String[] values = listRow.get(row);
+            // next command
+            if (!values[0].equals("")) {
+                if (row > 0) {
+                    listCommand.add(createCommand(numCommandID, strCommand, rowStart, listParameter));
+                }
+                strCommand = values[0];
+                numCommandID++;
+                rowStart = row;
+                listParameter.clear();
+            }
+            if (!values[1].equals("")) {
+                strParameter = values[1];
+            }
+            listParameter.add(new String[]{strParameter.toLowerCase(), values[2]});
+        }
+        if (listRow.size() > 0) {
+            listCommand.add(createCommand(numCommandID, strCommand, rowStart, listParameter));
+        }
+
+        return new TestPlan(sheet, listCommand.toArray(new TestCommand[0]));
+    }
+
+    private static TestCommand createCommand(int id, String strCommand, int rowStart, List<String[]> listParameter) {
+        String name = strCommand.toLowerCase();
+        return new TestCommand(id, CommandType.of(name), name, rowStart, listParameter.toArray(new String[0][]));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getID() {
+        return strID;
+    }
+
+    String getTitle() {
+        return strTitle;
+    }
+
+    TestCommand[] getCommands() {
+        return commands;
+    }
+
+    int getCaseCount() {
+        return caseNumbers.length;
+    }
+
+    String getCaseNumber(int caseIndex) {
+        return caseNumbers[caseIndex];
+    }
+
+    /**
+     * Get the end of the run of Input/Select commands.
+     * @param commandIndex index of the command.
+     * @return index of the next command of the run (commandIndex + 1 if the command isn't a start of a run)
+     */
+    int getFillRunEnd(int commandIndex) {
+        return fillRunEnds[commandIndex];
+    }
+
+    /**
+     * Get the compiled file name of "Capture".
+     * @param origin file name with tags.
+     * @return compiled template (compiled at each call if it isn't a parameter of this plan)
+     */
+    FilenameTemplate getFilenameTemplate(String origin) {
+        FilenameTemplate template = templates.get(origin);
+        return (template != null) ? template : FilenameTemplate.compile(origin);
+    }
+
+    int getMaxRowCount() {
+        return maxRowCount;
+    }
+
+    CaseMatrix getMatrix() {
+        return matrix;
+    }
+
+    int getRowStart() {
+        return rowStart;
+    }
+
+    int getColStart() {
+        return colStart;
+    }
+
+}
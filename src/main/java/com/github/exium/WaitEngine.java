@@ -0,0 +1,141 @@
+package com.github.exium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wait for conditions of the page by polling (instead of fixed sleeps).
+ */
+class WaitEngine {
+
+    private static final int POLL_MIN = 25;     // first polling interval (milliseconds)
+    private static final int POLL_MAX = 250;    // max polling interval (milliseconds)
+
+    // install the probe (pending fetch/XHR and the time of the last DOM mutation) at first, and return the state.
+    // requests started before the probe aren't counted as pending, so the end of the last resource (Resource Timing)
+    // is also returned as the network idle time.
+    private static final String PAGE_READY_SCRIPT =
+            "var w = window, p = w.performance;" +
+            "if (!w.__exium) {" +
+            "  var s = w.__exium = {pending: 0, lastMutation: Date.now(), lastResponse: 0, observed: false};" +
+            "  var send = XMLHttpRequest.prototype.send;" +
+            "  XMLHttpRequest.prototype.send = function() {" +
+            "    s.pending++;" +
+            "    this.addEventListener('loadend', function() { s.pending--; });" +
+            "    return send.apply(this, arguments);" +
+            "  };" +
+            "  if (w.fetch) {" +
+            "    var f = w.fetch;" +
+            "    w.fetch = function() {" +
+            "      s.pending++;" +
+            "      return f.apply(this, arguments).then(" +
+            "        function(r) { s.pending--; return r; }, function(e) { s.pending--; throw e; });" +
+            "    };" +
+            "  }" +
+            "  if (w.MutationObserver) {" +
+            "    new MutationObserver(function() { s.lastMutation = Date.now(); }).observe(document," +
+            "      {childList: true, subtree: true, attributes: true, characterData: true});" +
+            "  }" +
+            "  s.done = function(entries) {" +
+            "    for (var i = 0; i < entries.length; i++) { s.lastResponse = Math.max(s.lastResponse, entries[i].responseEnd); }" +
+            "  };" +
+            "  if (p && p.getEntriesByType) {" +
+            "    s.done(p.getEntriesByType('resource'));" +
+            "    if (w.PerformanceObserver) {" +
+            "      try {" +
+            "        new PerformanceObserver(function(list) { s.done(list.getEntries()); }).observe({entryTypes: ['resource']});" +
+            "        s.observed = true;" +
+            "      } catch (e) {}" +
+            "    }" +
+            "  }" +
+            "}" +
+            "var e = w.__exium;" +
+            "if (!e.observed && p && p.getEntriesByType) { e.done(p.getEntriesByType('resource')); }" +
+            "var idle = (p && p.now) ? p.now() - e.lastResponse : Date.now() - e.lastMutation;" +
+            "var fonts = !document.fonts || document.fonts.status === 'loaded';" +
+            "return [document.readyState === 'complete', e.pending, fonts, Date.now() - e.lastMutation, Math.floor(idle)];";
+
+    private Logger logger;
+
+    WaitEngine() {
+        logger = Exium.logger;
+    }
+
+    /**
+     * Wait until the page is ready (document is loaded, no pending fetch/XHR, fonts are loaded, and DOM and network are quiet).
+     * @param driver web driver.
+     * @param strCaseNum string value of case number.
+     * @param command target command (for logs).
+     * @param timeout timeout (milliseconds).
+     * @param quiet time without DOM mutation and without finished requests (milliseconds).
+     * @return true: ready, false: timeout or can't check
+     */
+    boolean waitForPageReady(WebDriver driver, String strCaseNum, String command, int timeout, int quiet) {
+        if (!(driver instanceof JavascriptExecutor)) {
+            return false;
+        }
+        boolean ready = until(() -> isReady(((JavascriptExecutor)driver).executeScript(PAGE_READY_SCRIPT), quiet), timeout);
+        if (!ready) {
+            logger.log("message.warn.page_not_ready", strCaseNum, command, Integer.toString(timeout));
+        }
+        return ready;
+    }
+
+    /**
+     * Poll the condition until it holds (the interval becomes longer from 25ms to 250ms).
+     * An exception in the condition (ex. the page is changing) means that it doesn't hold yet.
+     * @param condition condition.
+     * @param timeout timeout (milliseconds, the condition is checked at least once).
+     * @return true: the condition holds, false: timeout
+     */
+    boolean until(BooleanSupplier condition, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        int interval = POLL_MIN;
+        while (true) {
+            try {
+                if (condition.getAsBoolean()) {
+                    return true;
+                }
+            } catch (RuntimeException re) {
+                // not yet
+            }
+            long remain = deadline - System.currentTimeMillis();
+            if (remain <= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(interval, remain));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            interval = Math.min(interval * 2, POLL_MAX);
+        }
+    }
+
+    /**
+     * Check the state returned by the probe.
+     * @param state [loaded, pending requests, fonts loaded, milliseconds since the last mutation,
+     *              milliseconds since the last finished request]
+     * @param quiet time without DOM mutation and without finished requests (milliseconds).
+     * @return true: ready, false: not ready
+     */
+    private boolean isReady(Object state, int quiet) {
+        if (!(state instanceof List)) {
+            return false;
+        }
+        List<?> list = (List<?>)state;
+        if (list.size() < 5) {
+            return false;
+        }
+        return Boolean.TRUE.equals(list.get(0))
+                && (((Number)list.get(1)).longValue() <= 0)
+                && Boolean.TRUE.equals(list.get(2))
+                && (((Number)list.get(3)).longValue() >= quiet)
+                && (((Number)list.get(4)).longValue() >= quiet);
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.github.exium;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Start browsers used by the checklist in background (while the workbook is loaded).
+ * The checklist is scanned by StreamingChecklistReader, and the browsers of "Open" commands are started
+ * by the pool in order of cases, so the first case can use a started browser (until the pool is full).
+ * Only browsers which can run several sessions (Chrome and Firefox) are started.
+ */
+class WarmUp {
+
+    private String testFilename;
+    private BrowserPool pool;
+    private Logger logger;
+    private Configurator conf;
+    private int count;      // number of browsers started for each key
+
+    /**
+     * Constructor of WarmUp class.
+     * @param testFilename checklist file name (argument of "-c" option)
+     * @param pool pool of browsers.
+     */
+    WarmUp(String testFilename, BrowserPool pool) {
+        this.testFilename = testFilename;
+        this.pool = pool;
+        this.logger = Exium.logger;
+        this.conf = Exium.conf;
+        this.count = conf.getIntProperty("webdriver.pool.warm_up");
+    }
+
+    /**
+     * Start scanning in background.
+     */
+    void start() {
+        if (count <= 0) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "WarmUp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Scan the checklist and start browsers.
+     */
+    private void run() {
+        long start = System.currentTimeMillis();
+        int sheets = 0;
+        Set<SessionKey> keys = new LinkedHashSet<>();
+
+        // note: errors of the checklist are reported by the execution, so the logs of scanning are discarded.
+        logger.startGroup();
+        StreamingChecklistReader reader = new StreamingChecklistReader(testFilename);
+        try {
+            if (reader.open()) {
+                while (reader.nextSheet()) {
+                    ChecklistSheet cs = reader.read();
+                    if (cs == null) {
+                        continue;
+                    }
+                    sheets++;
+                    boolean full = false;
+                    for (SessionKey key : scan(TestPlan.compile(cs))) {
+                        // start as soon as found
+                        if (keys.add(key) && !pool.prewarm(key, count)) {
+                            full = true;
+                            break;
+                        }
+                    }
+                    if (full) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // the browsers are started at "Open" command
+        } finally {
+            reader.close();
+            logger.leaveGroup();
+        }
+
+        logger.log("message.info.warm_up", Integer.toString(sheets), Integer.toString(keys.size()),
+                Long.toString(System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Get keys of browsers opened by "Open" commands in the test plan.
+     * @param plan test plan of the sheet.
+     * @return keys (in order of cases and commands).
+     */
+    private Set<SessionKey> scan(TestPlan plan) {
+        Set<SessionKey> keys = new LinkedHashSet<>();
+        CaseMatrix matrix = plan.getMatrix();
+        for (int caseIndex = 0; caseIndex < plan.getCaseCount(); caseIndex++) {
+            for (TestCommand command : plan.getCommands()) {
+                if (command.getType() != CommandType.OPEN) {
+                    continue;
+                }
+                String browser = "";
+                String device = "";
+                String render = "";
+                String pageLoad = "";
+                for (int i = 0; i < command.getRowCount(); i++) {
+                    if (!matrix.isChecked(command.getRowStart() + i, caseIndex)) {
+                        continue;
+                    }
+                    String[] param = command.getParameter(i);
+                    if (param[0].equalsIgnoreCase("browser")) {
+                        browser = param[1];
+                    } else if (param[0].equalsIgnoreCase("device")) {
+                        device = param[1];
+                    } else if (param[0].equalsIgnoreCase("render")) {
+                        render = param[1];
+                    } else if (param[0].equalsIgnoreCase("page_load")) {
+                        pageLoad = param[1];
+                    }
+                }
+                // note: IE and Safari run only one session, so a started browser may block "Open" command.
+                if (!"chrome".equalsIgnoreCase(browser) && !"firefox".equalsIgnoreCase(browser)) {
+                    continue;
+                }
+                // unknown devices are also started (at the default window size, as "Open" does with the same key)
+                keys.add(SessionKey.forOpen(conf, browser, device, render, pageLoad));
+            }
+        }
+        return keys;
+    }
+
+}
@@ -3,24 +3,15 @@ package com.github.exium;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.FileUtils;
 import org.openqa.selenium.*;
 import org.openqa.selenium.NoSuchElementException;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.firefox.FirefoxOptions;
-import org.openqa.selenium.firefox.FirefoxProfile;
-import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.support.ui.Select;
 import org.openqa.selenium.support.ui.UnexpectedTagNameException;
 
-import java.io.File;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -29,13 +20,75 @@ import java.util.regex.PatternSyntaxException;
  */
 class WebDriverController {
 
+    // arguments[0]: rows of [command ("input" or "select"), locator chain, texts]
+    // return: [status (0: OK, 1: not select tag, 2: text not in the list), number of found elements] of each row.
+    //         rows from the first one which needs WebElement (ex. not found yet) are not executed.
+    private static final String FILL_SCRIPT =
+            "var resolve = " + LocatorChain.RESOLVE_FUNCTION + ";" +
+            "var normalize = function(v) { return (v || '').replace(/\\s+/g, ' ').trim(); };" +
+            "var rows = arguments[0], results = [];" +
+            "for (var r = 0; r < rows.length; r++) {" +
+            "  var nodes = resolve(rows[r][1]);" +
+            "  if (typeof nodes === 'number') { break; }" +
+            "  var el = nodes[0], texts = rows[r][2], tag = el.tagName.toLowerCase();" +
+            "  if (rows[r][0] === 'input') {" +
+            "    var type = (el.type || '').toLowerCase();" +
+            "    var isText = (tag === 'textarea') || ((tag === 'input')" +
+            "        && (['checkbox', 'radio', 'file', 'button', 'submit', 'reset', 'image', 'hidden'].indexOf(type) < 0));" +
+            "    if (!isText || el.disabled || el.readOnly) { break; }" +
+            "    var proto = (tag === 'textarea') ? HTMLTextAreaElement.prototype : HTMLInputElement.prototype;" +
+            "    var value = el.value + texts.join('');" +
+            "    if ((el.maxLength >= 0) && (value.length > el.maxLength)) { value = value.substring(0, el.maxLength); }" +
+            "    el.focus();" +
+            "    Object.getOwnPropertyDescriptor(proto, 'value').set.call(el, value);" +
+            "    el.dispatchEvent(new Event('input', {bubbles: true}));" +
+            "    el.dispatchEvent(new Event('change', {bubbles: true}));" +
+            "    results.push([0, nodes.length]);" +
+            "  } else {" +
+            "    if (tag !== 'select') { results.push([1, nodes.length]); continue; }" +
+            "    if (el.multiple) { for (var k = 0; k < el.options.length; k++) { el.options[k].selected = false; } }" +
+            "    var status = 0;" +
+            "    for (var t = 0; (t < texts.length) && (status === 0); t++) {" +
+            "      var found = false;" +
+            "      for (var k = 0; k < el.options.length; k++) {" +
+            "        if (normalize(el.options[k].text) === normalize(texts[t])) {" +
+            "          el.options[k].selected = true;" +
+            "          found = true;" +
+            "          if (!el.multiple) { break; }" +
+            "        }" +
+            "      }" +
+            "      status = found ? 0 : 2;" +
+            "    }" +
+            "    el.dispatchEvent(new Event('change', {bubbles: true}));" +
+            "    results.push([status, nodes.length]);" +
+            "  }" +
+            "}" +
+            "return results;";
+
     private Logger logger;
     private WebDriver driver;
     private HashMap<String, WebDriver> drivers;
+    private Set<String> retainedCases = null;   // case numbers used by "SwitchBrowser" (null: all cases)
+    private BrowserPool pool;
+    private ScreenshotWriter screenshots;
+    private WaitEngine waitEngine;
+    private ElementCache elementCache = null;   // null if disabled
     private Configurator conf;
+    private PageMetrics pageMetrics;
+    private TestCommand command = null;         // executing command
+    private Runnable onFailure = null;          // called if the executing command fails later
+    private Object lastTimeOrigin = null;       // start of the last measured navigation
+    private WebDriver postedDriver = null;      // browser whose page may be the result of POST (see isPostForm)
 
-    WebDriverController()
+    WebDriverController(BrowserPool pool, ScreenshotWriter screenshots, PageMetrics pageMetrics)
     {
+        this.pool = pool;
+        this.screenshots = screenshots;
+        this.pageMetrics = pageMetrics;
+        this.waitEngine = new WaitEngine();
+        if (Exium.conf.getBooleanProperty("webdriver.common.element_cache")) {
+            this.elementCache = new ElementCache();
+        }
         logger = Exium.logger;
         drivers = new HashMap<>();
         conf = Exium.conf;
@@ -47,7 +100,7 @@ class WebDriverController {
      * @param strCaseNum string value of case number.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeOpen(ArrayList<String[]> listParameter, String strCaseNum) {
+    boolean executeOpen(List<String[]> listParameter, String strCaseNum) {
 
         // get parameter value of "browser"
         String browser = getParameterValue(listParameter, strCaseNum, "browser");
@@ -65,123 +118,37 @@ class WebDriverController {
                 logger.log("message.warn.ignore_device", strCaseNum, "Open");
             }
         }
-        // get browser properties(width, height, userAgent) from device list
+        // get browser properties(width, height) from device list
         int width = 0;
         int height = 0;
-        String userAgent = "";
-        String deviceNameOnChrome = "";
-        if (!device.equals("")) {
-            // search device from Configurator
-            for (int i = 0; i < 16; i++) {
-                String prop = "browser.common.device." + i;
-                String title = conf.getStringProperty(prop + ".title");
-                if (device.equalsIgnoreCase(title)) {
-                    width = conf.getIntProperty(prop + ".width");
-                    height = conf.getIntProperty(prop + ".height");
-                    userAgent = conf.getStringProperty(prop + ".useragent");
-                    deviceNameOnChrome = conf.getStringProperty(prop + ".chrome");
-                    break;
-                }
-            }
+        DeviceRegistry.Device found = conf.getDevices().find(device);
+        if (found != null) {
+            width = found.getWidth();
+            height = found.getHeight();
+        }
+        // get parameter value of "page_load" (page load strategy, the default strategy if not specified)
+        String pageLoad = getParameterValue(listParameter, strCaseNum, "page_load");
+        if (!pageLoad.equals("") && !SessionKey.isPageLoadStrategy(pageLoad)) {
+            logger.log("message.warn.invalid_value", strCaseNum, "Open", "page_load");
+            return false;
         }
 
-        // Open each browser
+        // Open each browser (an idle browser in the pool is used if exists)
         switch (browser.toLowerCase()) {
             case "firefox" :
-            	String geckodriver ="";
-                try {
-					// get path of gecko driver and set to system properties
-					geckodriver = conf.getStringProperty("webdriver.firefox.driver");
-					if (isWindows()) {
-						if (!geckodriver.toLowerCase().contains(".exe")) {
-							geckodriver += ".exe";
-						}
-					}
-					System.setProperty("webdriver.gecko.driver", geckodriver);
-					FirefoxOptions options = new FirefoxOptions();
-					options.setCapability("marionette", true);
-					if (!device.equals("") && !userAgent.equals("")) {
-						// apply userAgent
-						FirefoxProfile profile = new FirefoxProfile();
-						profile.setPreference("general.useragent.override", userAgent);
-						options.setProfile(profile);
-					}
-					int retry_num = conf.getIntProperty("webdriver.common.retry");
-					for (int i = 0; i < retry_num + 1; i++) {
-						try {
-							driver = new FirefoxDriver(options);
-							break;
-						} catch (SessionNotCreatedException snce) {
-							// note: firefox driver can't open multiple windows so need wait for previous session closed.
-							int retry_interval = conf.getIntProperty("webdriver.common.retry_interval");
-							logger.log("message.warn.session_not_closed", strCaseNum, "Open", Integer.toString(i + 1) + "/" + Integer.toString(retry_num), Integer.toString(retry_interval));
-							Thread.sleep(retry_interval);
-						}
-					}
-				} catch (Exception e) {
-                    logger.log("message.warn.cant_init_firefox", e, strCaseNum, "Open", geckodriver);
-                    return false;
-                }
-                break;
-            case "ie" :
-                // note: don't apply userAgent even if user defined
-                try {
-                    driver = new InternetExplorerDriver();
-                } catch (Exception e) {
-                    logger.log("message.warn.cant_init_ie", e, strCaseNum, "Open");
-                    return false;
-                }
-                break;
             case "chrome" :
-                String chromedriver = "";
-                try {
-                    // get path of Chrome driver and set to system properties
-                    chromedriver = conf.getStringProperty("webdriver.chrome.driver");
-                    if (isWindows()) {
-                        if (!chromedriver.toLowerCase().contains(".exe")) {
-                            chromedriver += ".exe";
-                        }
-                    }
-                    System.setProperty("webdriver.chrome.driver", chromedriver);
-                    // if defined device name on Chrome, open Chrome with the device name (using mobile emulation)
-                    // if don't defined device name on Chrome, open Chrome and set userAgent (if defined)
-                    if (!deviceNameOnChrome.equals("")) {
-                        Map<String, String> mobileEmulation = new HashMap<>();
-                        mobileEmulation.put("deviceName", deviceNameOnChrome);
-                        ChromeOptions options = new ChromeOptions();
-                        options.setExperimentalOption("mobileEmulation", mobileEmulation);
-                        driver = new ChromeDriver(options);
-                    } else if (!device.equals("") && !userAgent.equals("")) {
-                        ChromeOptions options = new ChromeOptions();
-                        options.addArguments("--user-agent=" +  userAgent);
-                        driver = new ChromeDriver(options);
-                    } else {
-                        driver = new ChromeDriver();
-                    }
-                } catch (Exception e) {
-                    logger.log("message.warn.cant_init_chrome", e, strCaseNum, "Open", chromedriver);
-                    return false;
-                }
-                break;
+            case "ie" :
             case "safari" :
-                // note: don't apply userAgent even if user defined
-                try {
-                	int retry_num = conf.getIntProperty("webdriver.common.retry");
-                	for (int i = 0; i < retry_num + 1; i++) {
-                		try {
-							driver = new SafariDriver();
-							break;
-						} catch (SessionNotCreatedException snce) {
-                			// note: safari driver can't open multiple windows so need wait for previous session closed.
-                			int retry_interval = conf.getIntProperty("webdriver.common.retry_interval");
-							logger.log("message.warn.session_not_closed", strCaseNum, "Open", Integer.toString(i + 1) + "/" + Integer.toString(retry_num), Integer.toString(retry_interval));
-                			Thread.sleep(retry_interval);
-						}
-					}
-                } catch (Exception e) {
-                    logger.log("message.warn.cant_init_safari", e, strCaseNum, "Open");
+                // "render" = "full": without blocking resources
+                SessionKey key = SessionKey.forOpen(conf, browser, device,
+                        getParameterValue(listParameter, strCaseNum, "render"), pageLoad);
+                WebDriver opened = pool.borrow(key, strCaseNum);
+                if (opened == null) {
                     return false;
                 }
+                releaseIfUnused(driver);
+                driver = opened;
+                postedDriver = null;
                 break;
 			case "":
 				// in case of re-open
@@ -204,10 +171,24 @@ class WebDriverController {
         }
         driver.manage().window().setSize(new Dimension(width, height));
         // set browser timeout second
-        int timeout = conf.getIntProperty("webdriver.common.timeout");
-        driver.manage().timeouts().implicitlyWait(timeout, TimeUnit.MILLISECONDS);
+        // note: implicit wait is disabled (elements are polled by WaitEngine), so negative lookups fail fast.
+        int timeout = conf.getIntProperty("webdriver.common.page_load_timeout");
+        String strTimeout = getParameterValue(listParameter, strCaseNum, "page_load_timeout");
+        if (!strTimeout.equals("")) {
+            try {
+                timeout = Integer.parseInt(strTimeout);
+            } catch (NumberFormatException nfe) {
+                logger.log("message.warn.cant_conv_param", "Open", strCaseNum, strTimeout);
+                return false;
+            }
+        }
+        WebDriver.Timeouts timeouts = driver.manage().timeouts();
+        timeouts.implicitlyWait(0, TimeUnit.MILLISECONDS);
+        timeouts.pageLoadTimeout(timeout, TimeUnit.MILLISECONDS);
+        timeouts.setScriptTimeout(conf.getIntProperty("webdriver.common.script_timeout"), TimeUnit.MILLISECONDS);
 
         // open url in the browser
+        invalidateElements();
         try {
             driver.get(url);
         } catch (TimeoutException te) {
@@ -215,6 +196,12 @@ class WebDriverController {
             return false;
         }
 
+        // wait for conditions (ex. "eager" or "none" strategy and "until_visible" of the target element)
+        for (String[] param : listParameter) {
+            if (param[0].startsWith("until_")) {
+                return executeWaitUntil(listParameter, strCaseNum);
+            }
+        }
         return true;
     }
 
@@ -224,7 +211,7 @@ class WebDriverController {
      * @param strCaseNum string value of case number.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeSwitchBrowser(ArrayList<String[]> listParameter, String strCaseNum) {
+    boolean executeSwitchBrowser(List<String[]> listParameter, String strCaseNum) {
 
         // get target case number
         String openedBy = getParameterValue(listParameter, strCaseNum, "opened_by");
@@ -233,6 +220,7 @@ class WebDriverController {
             return false;
         }
         // get used driver by case number
+        invalidateElements();
         this.driver = drivers.get(openedBy);
         if (this.driver == null) {
             logger.log("message.warn.cant_find_browser", strCaseNum, "SwitchBrowser");
@@ -249,7 +237,7 @@ class WebDriverController {
      * @param command target command.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeToElement(ArrayList<String[]> listParameter, String strCaseNum, String command) {
+    boolean executeToElement(List<String[]> listParameter, String strCaseNum, String command) {
 
 		// check driver
 		if (this.driver == null) {
@@ -306,6 +294,9 @@ class WebDriverController {
 					return false;
 				}
 
+				// the page may be changed
+				setPosted(elements.get(0));
+				invalidateElements();
 				try {
 					elements.get(0).submit();
 				} catch (Exception e) {
@@ -316,6 +307,9 @@ class WebDriverController {
             case "click":
                 String typeClick = elements.get(0).getAttribute("type");
                 // if the type is "submit", not using click()
+				// the page may be changed
+				setPosted(elements.get(0));
+				invalidateElements();
 				try {
 					elements.get(0).submit();
 				} catch (Exception ignore) {
@@ -412,13 +406,85 @@ class WebDriverController {
         return true;
     }
 
+    /**
+     * Execute a run of "Input" and "Select" commands by one script (fast fill mode).
+     * The value is set and "input"/"change" events are fired instead of key events by sendKeys.
+     * @param listCommand target commands ("Input" or "Select").
+     * @param listParameters parameter list with its values of each command.
+     * @param strCaseNum string value of case number.
+     * @return result of each command (null if not executed, then execute it by executeToElement).
+     */
+    @SuppressWarnings("unchecked")
+    Boolean[] executeFill(List<TestCommand> listCommand, List<List<String[]>> listParameters, String strCaseNum) {
+        Boolean[] results = new Boolean[listCommand.size()];
+        if (!(this.driver instanceof JavascriptExecutor)) {
+            return results;
+        }
+
+        // create rows (until the first command which has invalid parameters)
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < listCommand.size(); i++) {
+            LocatorChain chain = LocatorChain.of(listParameters.get(i));
+            List<String> texts = new ArrayList<>();
+            for (String[] param : listParameters.get(i)) {
+                if (param[0].equalsIgnoreCase("text")) {
+                    texts.add((param[1] != null) ? param[1] : "");
+                }
+            }
+            boolean isValid = (chain.size() > 0) && (texts.size() > 0);
+            for (String[] locator : chain.getLocators()) {
+                isValid &= !locator[1].equals("");
+            }
+            if (!isValid) {
+                break;
+            }
+            String command = (listCommand.get(i).getType() == CommandType.INPUT) ? "input" : "select";
+            rows.add(Arrays.asList(command, chain.getLocators(), texts));
+        }
+        if (rows.size() == 0) {
+            return results;
+        }
+
+        // execute
+        Object result;
+        try {
+            result = ((JavascriptExecutor)driver).executeScript(FILL_SCRIPT, rows);
+        } catch (RuntimeException re) {
+            return results;
+        }
+        if (!(result instanceof List)) {
+            return results;
+        }
+
+        // output the same logs as executeToElement
+        List<Object> listResult = (List<Object>)result;
+        for (int i = 0; (i < listResult.size()) && (i < rows.size()); i++) {
+            List<Object> row = (List<Object>)listResult.get(i);
+            int status = ((Number)row.get(0)).intValue();
+            int count = ((Number)row.get(1)).intValue();
+            String command = (listCommand.get(i).getType() == CommandType.INPUT) ? "Input" : "Select";
+            if (count > 1) {
+                LocatorChain chain = LocatorChain.of(listParameters.get(i));
+                String[] last = chain.get(chain.size() - 1);
+                logger.log("message.warn.too_mach_elements", strCaseNum, command, Integer.toString(count), last[0], last[1]);
+            }
+            if (status == 1) {
+                logger.log("message.warn.cant_conv_select", strCaseNum, command);
+            } else if (status == 2) {
+                logger.log("message.warn.cant_select_by_txt", strCaseNum, command);
+            }
+            results[i] = (status == 0);
+        }
+        return results;
+    }
+
     /**
      * Execute "SendKeys" command
      * @param listParameter parameter list with its values.
      * @param strCaseNum string value of case number.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeSendKeys(ArrayList<String[]> listParameter, String strCaseNum) {
+    boolean executeSendKeys(List<String[]> listParameter, String strCaseNum) {
 
 		// check driver
 		if (this.driver == null) {
@@ -470,13 +536,14 @@ class WebDriverController {
      * @param strCaseNum string value of case number.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeBrowserOperation(ArrayList<String[]> listParameter, String strCaseNum) {
+    boolean executeBrowserOperation(List<String[]> listParameter, String strCaseNum) {
 
         // check driver
         if (this.driver == null) {
             logger.log("message.warn.cant_find_driver", strCaseNum, "Close");
             return false;
         }
+        invalidateElements();
 
         // execute operation
         for (String[] parameter : listParameter) {
@@ -498,7 +565,10 @@ class WebDriverController {
                 case "close" :
                     // in some browser(firefox, safari), close() doesn't work.
                     //driver.close();
-                    driver.quit();
+                    // note: the browser is returned to the pool (it can't be switched any more).
+                    WebDriver closed = driver;
+                    drivers.values().removeIf(d -> d == closed);
+                    pool.release(closed);
                     driver = null;
                     break;
                 default:
@@ -513,11 +583,10 @@ class WebDriverController {
      * Execute "Capture" command
      * @param listParameter parameter list with its values.
      * @param strCaseNum string value of case number.
-     * @param strID string value of ID (need for filename)
-     * @param strTitle string value of Title (need for filename)
+     * @param plan test plan of the sheet (need for filename)
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeCapture(ArrayList<String[]> listParameter, String strCaseNum, String strID, String strTitle) {
+    boolean executeCapture(List<String[]> listParameter, String strCaseNum, TestPlan plan) {
 
 		// check driver
 		if (this.driver == null) {
@@ -538,7 +607,7 @@ class WebDriverController {
             logger.log("message.warn.no_filename", strCaseNum, "Capture");
             return false;
         }
-        filename = createFilename(filename, strCaseNum, strID, strTitle);
+        filename = plan.getFilenameTemplate(filename).format(strCaseNum, plan.getID(), plan.getTitle());
         String ext = filename.substring(filename.length() - 4);
         if (!ext.equalsIgnoreCase(".png")) {
         	filename = filename + ".png";
@@ -547,14 +616,34 @@ class WebDriverController {
 		// get screen capture
 		try {
         	// need to loading has finished
-        	int intervalBefore = conf.getIntProperty("webdriver.common.ss_before_interval");
-        	Thread.sleep(intervalBefore);
-			File scrFile = ((TakesScreenshot)driver).getScreenshotAs(OutputType.FILE);
-			FileUtils.copyFile(scrFile, new File(filename));
-			// need to save file has finished
-			// (It seems to be doing parallel processing.)
-			int intervalAfter = conf.getIntProperty("webdriver.common.ss_after_interval");
-			Thread.sleep(intervalAfter);
+        	String mode = conf.getStringProperty("webdriver.capture.wait");
+        	if (mode.equalsIgnoreCase("sleep")) {
+        		// fixed interval (compatible mode)
+        		int intervalBefore = conf.getIntProperty("webdriver.common.ss_before_interval");
+        		Thread.sleep(intervalBefore);
+        	} else if (!mode.equalsIgnoreCase("none")) {
+        		// note: capture even if timeout.
+        		waitEngine.waitForPageReady(driver, strCaseNum, "Capture",
+        				conf.getIntProperty("webdriver.capture.ready_timeout"),
+        				conf.getIntProperty("webdriver.capture.dom_quiet"));
+        	}
+			byte[] image;
+			if (getParameterValue(listParameter, strCaseNum, "render").equalsIgnoreCase("full")) {
+				image = captureFullRendering(strCaseNum);
+				if (image == null) {
+					return false;
+				}
+			} else {
+				image = ((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES);
+			}
+			// the file is written by ScreenshotWriter, so the browser doesn't wait for it.
+			if (!screenshots.write(filename, image, onFailure)) {
+				return false;
+			}
+			if (mode.equalsIgnoreCase("sleep")) {
+				int intervalAfter = conf.getIntProperty("webdriver.common.ss_after_interval");
+				Thread.sleep(intervalAfter);
+			}
 		} catch (Exception e) {
 			logger.log("message.error.cant_write_file", filename);
 			return false;
@@ -563,13 +652,161 @@ class WebDriverController {
         return true;
     }
 
+    /**
+     * Capture the current page with all resources ("render" = "full" of "Capture").
+     * If the browser blocks resources, the page (URL and cookies) is opened by a browser without blocking.
+     * note: the policy can't be changed while the browser is running, so the capture doesn't have the inputs
+     * of forms, changes of the page by scripts and the results of POST (the URL is loaded again by GET).
+     * @param strCaseNum string value of case number.
+     * @return PNG image (null if failed).
+     */
+    private byte[] captureFullRendering(String strCaseNum) {
+        ResourcePolicy policy = getBlockingPolicy();
+        if (policy == null) {
+            return ((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES);
+        }
+        if (postedDriver == driver) {
+            logger.log("message.warn.full_render_post", strCaseNum, "Capture");
+        }
+        SessionKey key = pool.getKey(driver);
+        WebDriver full = pool.borrow(key.withPolicy(ResourcePolicy.NONE), strCaseNum);
+        if (full == null) {
+            return null;
+        }
+        try {
+            String url = driver.getCurrentUrl();
+            Dimension size = driver.manage().window().getSize();
+            full.manage().window().setSize(size);
+            full.get(url);
+            Set<Cookie> cookies = driver.manage().getCookies();
+            if (!cookies.isEmpty()) {
+                for (Cookie cookie : cookies) {
+                    full.manage().addCookie(cookie);
+                }
+                full.navigate().refresh();
+            }
+            waitEngine.waitForPageReady(full, strCaseNum, "Capture",
+                    conf.getIntProperty("webdriver.capture.ready_timeout"),
+                    conf.getIntProperty("webdriver.capture.dom_quiet"));
+            return ((TakesScreenshot)full).getScreenshotAs(OutputType.BYTES);
+        } catch (Exception e) {
+            logger.log("message.warn.command_exec_fail", e, strCaseNum, "Capture");
+            return null;
+        } finally {
+            pool.release(full);
+        }
+    }
+
+    /**
+     * Execute "Measure" command (measure the performance of the current page after loading has finished)
+     * @param listParameter parameter list with its values.
+     * @param strCaseNum string value of case number.
+     * @param plan test plan of the sheet.
+     * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
+     */
+    boolean executeMeasure(List<String[]> listParameter, String strCaseNum, TestPlan plan) {
+        if (this.driver == null) {
+            logger.log("message.warn.cant_find_driver", strCaseNum, "Measure");
+            return false;
+        }
+        // note: measure even if timeout (the times not reached are 0).
+        waitEngine.waitForPageReady(driver, strCaseNum, "Measure",
+                conf.getIntProperty("webdriver.common.page_load_timeout"), 0);
+        return measurePage(plan, strCaseNum, false);
+    }
+
+    /**
+     * Measure the performance of the current page (see PageMetrics).
+     * @param plan test plan of the sheet.
+     * @param strCaseNum string value of case number.
+     * @param onlyNavigated if true, the page measured already (not navigated by the command) is skipped.
+     * @return true if measured.
+     */
+    boolean measurePage(TestPlan plan, String strCaseNum, boolean onlyNavigated) {
+        if (this.driver == null) {
+            return false;
+        }
+        try {
+            Object result = ((JavascriptExecutor)driver).executeScript(PageMetrics.MEASURE_SCRIPT);
+            if (!(result instanceof List) || (((List<?>)result).size() < 9)) {
+                // not supported by the browser
+                if (!onlyNavigated) {
+                    logger.log("message.warn.command_exec_fail", strCaseNum, "Measure");
+                }
+                return false;
+            }
+            List<?> values = (List<?>)result;
+            if (onlyNavigated && Objects.equals(values.get(8), lastTimeOrigin)) {
+                return false;
+            }
+            lastTimeOrigin = values.get(8);
+            pageMetrics.record(plan, strCaseNum, command, values);
+            return true;
+        } catch (Exception e) {
+            logger.log("message.warn.command_exec_fail", e, strCaseNum, "Measure");
+            return false;
+        }
+    }
+
+    /**
+     * Set the executing command (the row of the command is recorded with the measurement).
+     * @param command executing command.
+     * @param onFailure called if the command fails after its result is recorded
+     *                  (ex. asynchronous writing of the screenshot, null if not needed).
+     */
+    void setCommand(TestCommand command, Runnable onFailure) {
+        this.command = command;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Get the resource policy of the current browser if it blocks resources.
+     * @return resource policy (null if nothing is blocked).
+     */
+    private ResourcePolicy getBlockingPolicy() {
+        SessionKey key = pool.getKey(driver);
+        ResourcePolicy policy = (key != null) ? conf.getPolicy(key.getPolicy()) : null;
+        return ((policy != null) && policy.isBlocking()) ? policy : null;
+    }
+
+    /**
+     * Remember whether the element submits a form by POST ("Submit" and "Click").
+     * It is checked only if the browser blocks resources ("render" = "full" of "Capture" loads the URL again).
+     * @param element target element.
+     */
+    private void setPosted(WebElement element) {
+        if (getBlockingPolicy() == null) {
+            return;
+        }
+        boolean posted = false;
+        try {
+            posted = Boolean.TRUE.equals(((JavascriptExecutor)driver).executeScript(
+                    "var e = arguments[0], f = e.form || (e.closest ? e.closest('form') : null);" +
+                    "return !!f && String(f.method).toLowerCase() === 'post';", element));
+        } catch (Exception ignore) {
+            // unknown (not POST)
+        }
+        if (posted) {
+            postedDriver = driver;
+        } else if (postedDriver == driver) {
+            postedDriver = null;
+        }
+    }
+
     /**
      * Execute "Wait" command
      * @param listParameter parameter list with its values.
      * @param strCaseNum string value of case number.
      * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
      */
-    boolean executeWait(ArrayList<String[]> listParameter, String strCaseNum) {
+    boolean executeWait(List<String[]> listParameter, String strCaseNum) {
+        // wait for conditions (if specified)
+        for (String[] param : listParameter) {
+            if (param[0].startsWith("until_")) {
+                return executeWaitUntil(listParameter, strCaseNum);
+            }
+        }
+
         String strMilliseconds = getParameterValue(listParameter, strCaseNum, "milliseconds");
         try {
             int milliseconds = Integer.parseInt(strMilliseconds);
@@ -585,31 +822,172 @@ class WebDriverController {
         return true;
     }
 
+    /**
+     * Execute "Wait" command with conditions (polling until all conditions hold or timeout)
+     * <ul>
+     *     <li>until_visible: the element (by_xxx) is displayed.</li>
+     *     <li>until_clickable: the element (by_xxx) is displayed and enabled.</li>
+     *     <li>until_text: the element (by_xxx, or the page if not specified) contains the text.</li>
+     *     <li>until_url: the URL contains the text.</li>
+     *     <li>until_js: the JavaScript expression is true.</li>
+     *     <li>timeout: timeout milliseconds (default is webdriver.common.timeout).</li>
+     * </ul>
+     * @param listParameter parameter list with its values.
+     * @param strCaseNum string value of case number.
+     * @return result of this command (if true, execute success("OK"). if false, execute error("NG").)
+     */
+    private boolean executeWaitUntil(List<String[]> listParameter, String strCaseNum) {
+
+        // check driver
+        if (this.driver == null) {
+            logger.log("message.warn.cant_find_driver", strCaseNum, "Wait");
+            return false;
+        }
+
+        // get timeout
+        int timeout = conf.getIntProperty("webdriver.common.timeout");
+        String strTimeout = getParameterValue(listParameter, strCaseNum, "timeout");
+        if (!strTimeout.equals("")) {
+            try {
+                timeout = Integer.parseInt(strTimeout);
+            } catch (NumberFormatException nfe) {
+                logger.log("message.warn.cant_conv_param", "Wait", strCaseNum, strTimeout);
+                return false;
+            }
+            if (timeout > (15 * 60 * 1000)) {
+                logger.log("message.warn.too_long_wait", "Wait", strCaseNum, strTimeout);
+                return false;
+            }
+        }
+
+        // create conditions
+        boolean hasLocator = listParameter.stream().anyMatch(param -> param[0].startsWith("by_"));
+        List<BooleanSupplier> conditions = new ArrayList<>();
+        for (String[] param : listParameter) {
+            String value = param[1];
+            switch (param[0]) {
+                case ("until_visible"):
+                case ("until_clickable"):
+                    if (!hasLocator) {
+                        logger.log("message.warn.lack_param", strCaseNum, "Wait");
+                        return false;
+                    }
+                    boolean clickable = param[0].equals("until_clickable");
+                    conditions.add(() -> {
+                        List<WebElement> elements = findElements(listParameter, new String[2]);
+                        if (elements != null) {
+                            for (WebElement element : elements) {
+                                if (element.isDisplayed() && (!clickable || element.isEnabled())) {
+                                    return true;
+                                }
+                            }
+                        }
+                        return false;
+                    });
+                    break;
+                case ("until_text"):
+                    conditions.add(() -> {
+                        List<WebElement> elements = hasLocator ? findElements(listParameter, new String[2])
+                                : driver.findElements(By.tagName("body"));
+                        if (elements != null) {
+                            for (WebElement element : elements) {
+                                if (element.getText().contains(value)) {
+                                    return true;
+                                }
+                            }
+                        }
+                        return false;
+                    });
+                    break;
+                case ("until_url"):
+                    conditions.add(() -> {
+                        String url = driver.getCurrentUrl();
+                        return (url != null) && url.contains(value);
+                    });
+                    break;
+                case ("until_js"):
+                    if (!(driver instanceof JavascriptExecutor)) {
+                        logger.log("message.warn.invalid_value", strCaseNum, "Wait", param[0]);
+                        return false;
+                    }
+                    conditions.add(() -> Boolean.TRUE.equals(
+                            ((JavascriptExecutor)driver).executeScript("return !!(" + value + ");")));
+                    break;
+                default:
+                    if (param[0].startsWith("until_")) {
+                        logger.log("message.warn.invalid_value", strCaseNum, "Wait", param[0]);
+                        return false;
+                    }
+                    break;
+            }
+        }
+
+        // polling
+        boolean rc = waitEngine.until(() -> {
+            for (BooleanSupplier condition : conditions) {
+                if (!condition.getAsBoolean()) {
+                    return false;
+                }
+            }
+            return true;
+        }, timeout);
+        if (!rc) {
+            logger.log("message.warn.wait_timeout", strCaseNum, "Wait", Integer.toString(timeout));
+        }
+        return rc;
+    }
+
     /**
      * Terminate test case
      * @param strCaseNum string value of case number.
      */
     void terminateTestCase(String strCaseNum) {
-        if (this.driver != null) {
+        // report and clear the element cache of the case
+        if (elementCache != null) {
+            if (elementCache.getHits() + elementCache.getMisses() > 0) {
+                logger.log("message.info.element_cache", strCaseNum,
+                        Integer.toString(elementCache.getHits()), Integer.toString(elementCache.getMisses()));
+            }
+            elementCache.reset();
+        }
+        if ((this.driver != null) && ((retainedCases == null) || retainedCases.contains(strCaseNum))) {
             drivers.put(strCaseNum, this.driver);
         }
     }
 
     /**
-     * Terminate process
+     * Set case numbers whose browsers are used by "SwitchBrowser" after the case.
+     * Other browsers are returned to the pool when "Open" replaces them.
+     * @param retainedCases case numbers (null: keep all browsers until terminate).
+     */
+    void setRetainedCases(Set<String> retainedCases) {
+        this.retainedCases = retainedCases;
+    }
+
+    /**
+     * Return the browser to the pool if no case will switch to it.
+     * @param target web driver.
+     */
+    private void releaseIfUnused(WebDriver target) {
+        if ((target != null) && !drivers.containsValue(target)) {
+            pool.release(target);
+        }
+    }
+
+    /**
+     * Terminate process (all browsers are returned to the pool)
      */
     void terminate() {
-        try {
-            for (String key : drivers.keySet()) {
-                drivers.get(key).quit();
-            }
-            if (driver != null) {
-                driver.quit();
-                driver = null;
-            }
-        } catch (Exception e) {
-            // do nothing
+        Set<WebDriver> opened = Collections.newSetFromMap(new IdentityHashMap<>());
+        opened.addAll(drivers.values());
+        if (driver != null) {
+            opened.add(driver);
         }
+        for (WebDriver target : opened) {
+            pool.release(target);
+        }
+        drivers.clear();
+        driver = null;
     }
 
     /**
@@ -618,7 +996,7 @@ class WebDriverController {
      * @param strCaseNum string value of case number.
      * @return filtered element
      */
-    private List<WebElement> getElements(ArrayList<String[]> listParameter, String strCaseNum, String command) {
+    private List<WebElement> getElements(List<String[]> listParameter, String strCaseNum, String command) {
 
     	// check parameter
 		boolean isValidParameter = false;
@@ -644,11 +1022,88 @@ class WebDriverController {
 			return null;
 		}
 
-		// find elements
+		// use cached elements (found by the previous command in this case)
+		String key = null;
+		if (elementCache != null) {
+			key = LocatorChain.of(listParameter).key();
+			List<WebElement> cached = elementCache.get(key, driver);
+			if (cached != null) {
+				warnTooManyElements(cached, listParameter, strCaseNum, command);
+				return cached;
+			}
+		}
+
+		// find elements (polling until found or lookup timeout)
+		String[] last = new String[]{"", ""};
+		List<List<WebElement>> found = new ArrayList<>();
+		int lookupTimeout = conf.getIntProperty("webdriver.common.lookup_timeout");
+		long start = System.nanoTime();
+		waitEngine.until(() -> {
+			List<WebElement> tmp = findElements(listParameter, last);
+			if (tmp == null) {
+				return false;
+			}
+			found.add(tmp);
+			return true;
+		}, lookupTimeout);
+		Exium.metrics.record("lookup", "command", command.toLowerCase(), start);
+		if (found.size() == 0) {
+			logger.log("message.warn.cant_find_item", strCaseNum, command, last[0], last[1]);
+			return null;
+		}
+		List<WebElement> elements = found.get(0);
+		if (elementCache != null) {
+			elementCache.put(key, elements);
+		}
+		warnTooManyElements(elements, listParameter, strCaseNum, command);
+
+		return elements;
+    }
+
+    /**
+     * if couldn't identify as one (use only top level element), output warning.
+     * @param elements found elements.
+     * @param listParameter parameter list with its values.
+     * @param strCaseNum string value of case number.
+     * @param command target command.
+     */
+    private void warnTooManyElements(List<WebElement> elements, List<String[]> listParameter, String strCaseNum, String command) {
+		if(elements.size() > 1) {
+			LocatorChain chain = LocatorChain.of(listParameter);
+			String[] last = chain.get(chain.size() - 1);
+			logger.log("message.warn.too_mach_elements", strCaseNum, command, Integer.toString(elements.size()), last[0], last[1]);
+		}
+    }
+
+    /**
+     * Invalidate cached elements (called on navigation).
+     */
+    private void invalidateElements() {
+        if (elementCache != null) {
+            elementCache.invalidate();
+        }
+    }
+
+    /**
+     * find elements by locators (by_xxx) in order (each locator finds in the elements found by the previous locator)
+     * @param listParameter parameter list with its values.
+     * @param last the last used locator {param, value} (output).
+     * @return found elements (null if not found)
+     */
+    private List<WebElement> findElements(List<String[]> listParameter, String[] last) {
+		// resolve the chain in the browser by one script (fall back to each locator if the script fails)
+		LocatorChain chain = LocatorChain.of(listParameter);
+		if ((chain.size() > 1) && (driver instanceof JavascriptExecutor)
+				&& conf.getBooleanProperty("webdriver.common.script_locator")) {
+			try {
+				return chain.find((JavascriptExecutor)driver, last);
+			} catch (RuntimeException re) {
+				// find by each locator
+			}
+		}
+
 		boolean isParent = true;
         List<WebElement> elements = null;
-        String param = "";
-        String value = "";
         for (String[] str: listParameter) {
             // set filtering by
 			By by;
@@ -679,8 +1134,8 @@ class WebDriverController {
                 case ("by_class"):
                 case ("by_xpath"):
                 case ("by_link_text"):
-					param = str[0];
-					value = str[1] ;
+					last[0] = str[0];
+					last[1] = str[1];
 					if (isParent) {
                         elements = driver.findElements(by);
                         isParent = false;
@@ -700,14 +1155,9 @@ class WebDriverController {
 					continue;
             }
             if ((elements == null) || (elements.size() == 0)) {
-                logger.log("message.warn.cant_find_item", strCaseNum, command, param, value);
                 return null;
             }
         }
-		// if couldn't identify as one (use only top level element)
-		if(elements != null && elements.size() > 1) {
-			logger.log("message.warn.too_mach_elements", strCaseNum, command, Integer.toString(elements.size()), param, value);
-		}
 
 		return elements;
     }
@@ -720,7 +1170,7 @@ class WebDriverController {
      * @param key target parameter string
      * @return value of parameter
      */
-    private String getParameterValue(ArrayList<String[]> listParameter, String strCaseNum, String key) {
+    private String getParameterValue(List<String[]> listParameter, String strCaseNum, String key) {
         String value = "";
         for (String[] param: listParameter) {
             if (key.equalsIgnoreCase(param[0])) {
@@ -734,47 +1184,6 @@ class WebDriverController {
         return value;
     }
 
-    /**
-     * running on windows or not
-     * @return if true, runnning on windows.
-     */
-    private boolean isWindows() {
-        return System.getProperty("os.name").contains("Windows");
-    }
-
-    /**
-     * create filename for capture
-     * @param origin original filename include special tags
-     * @param strCaseNum string value of case number.
-     * @param strID string of ID
-     * @param strTitle string of Title
-     * @return filename (after replacement by tags)
-     */
-    private String createFilename(String origin, String strCaseNum, String strID, String strTitle) {
-
-        String filename = origin;
-
-        //Date, Time
-        Date date = new Date();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        String strDate = sdf.format(date);
-        filename = Pattern.compile("<DATE>", Pattern.CASE_INSENSITIVE).matcher(filename).replaceAll(strDate);
-        sdf = new SimpleDateFormat("HH:mm:ss");
-        String strTime = sdf.format(date);
-        filename = Pattern.compile("<TIME>", Pattern.CASE_INSENSITIVE).matcher(filename).replaceAll(strTime);
-
-        //ID
-        filename = Pattern.compile("<ID>", Pattern.CASE_INSENSITIVE).matcher(filename).replaceAll(strID);
-
-        // Title
-        filename = Pattern.compile("<TITLE>", Pattern.CASE_INSENSITIVE).matcher(filename).replaceAll(strTitle);
-
-        // CaseNumber
-        filename = Pattern.compile("<CASENO>", Pattern.CASE_INSENSITIVE).matcher(filename).replaceAll(strCaseNum);
-
-        return filename;
-    }
-
     /**
      * enum for "SendKeys" command
      */
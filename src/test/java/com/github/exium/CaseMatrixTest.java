@@ -0,0 +1,87 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CaseMatrixTest {
+
+    @Test
+    public void checkMarksAreChecked() {
+        String[] marks = {"Y", "y", "o", "O", "*", "●", "✓", "☑", "✅"};
+        CaseMatrix matrix = new CaseMatrix(marks.length);
+        for (int i = 0; i < marks.length; i++) {
+            matrix.set(0, i, marks[i]);
+        }
+        for (int i = 0; i < marks.length; i++) {
+            assertTrue(marks[i], matrix.isChecked(0, i));
+        }
+    }
+
+    @Test
+    public void resultsAndOtherMarksAreNotChecked() {
+        // results of a previous run ("○", "×", "OK", "NG") and other values are not check marks
+        String[] marks = {"", " ", "○", "×", "OK", "NG", "N", "x", "0", "●●"};
+        CaseMatrix matrix = new CaseMatrix(marks.length);
+        for (int i = 0; i < marks.length; i++) {
+            matrix.set(0, i, marks[i]);
+        }
+        for (int i = 0; i < marks.length; i++) {
+            assertFalse("[" + marks[i] + "]", matrix.isChecked(0, i));
+            assertFalse("[" + marks[i] + "]", matrix.isJapanese(0, i));
+        }
+    }
+
+    @Test
+    public void onlyJapaneseMarkIsJapanese() {
+        CaseMatrix matrix = new CaseMatrix(2);
+        matrix.set(0, 0, "●");
+        matrix.set(0, 1, "Y");
+        assertTrue(matrix.isJapanese(0, 0));
+        assertTrue(matrix.isChecked(0, 0));
+        assertFalse(matrix.isJapanese(0, 1));
+        assertTrue(matrix.isChecked(0, 1));
+    }
+
+    @Test
+    public void japaneseMarkDoesNotLeakToOtherCells() {
+        CaseMatrix matrix = new CaseMatrix(3);
+        matrix.set(1, 1, "●");
+        for (int row = 0; row < 3; row++) {
+            for (int c = 0; c < 3; c++) {
+                boolean target = (row == 1) && (c == 1);
+                assertTrue(matrix.isChecked(row, c) == target);
+                assertTrue(matrix.isJapanese(row, c) == target);
+            }
+        }
+    }
+
+    @Test
+    public void growsBeyondOneWord() {
+        // 7 cases x 100 rows crosses many 64 bit words
+        CaseMatrix matrix = new CaseMatrix(7);
+        for (int row = 0; row < 100; row++) {
+            matrix.set(row, row % 7, (row % 2 == 0) ? "●" : "Y");
+        }
+        for (int row = 0; row < 100; row++) {
+            for (int c = 0; c < 7; c++) {
+                boolean target = (c == row % 7);
+                assertTrue(row + "/" + c, matrix.isChecked(row, c) == target);
+                assertTrue(row + "/" + c, matrix.isJapanese(row, c) == (target && (row % 2 == 0)));
+            }
+        }
+        assertFalse(matrix.isChecked(1000, 0));
+    }
+
+    @Test
+    public void casesOutOfRangeAreIgnored() {
+        CaseMatrix matrix = new CaseMatrix(2);
+        matrix.set(0, 2, "Y");
+        matrix.set(0, -1, "Y");
+        assertFalse(matrix.isChecked(1, 0));
+        assertFalse(matrix.isChecked(0, 0));
+        assertFalse(matrix.isChecked(0, 1));
+    }
+
+}
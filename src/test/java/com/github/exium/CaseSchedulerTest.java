@@ -0,0 +1,108 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CaseSchedulerTest {
+
+    /**
+     * Create a plan from rows of {command, parameter, value, marks} (a mark "Y" for each case, "-" if not checked).
+     */
+    private static TestPlan plan(int cases, String[]... rows) {
+        List<String[]> list = new ArrayList<>();
+        List<String> caseNumbers = new ArrayList<>();
+        for (int c = 0; c < cases; c++) {
+            caseNumbers.add(String.format("%03d", c + 1));
+        }
+        CaseMatrix matrix = new CaseMatrix(cases);
+        for (int row = 0; row < rows.length; row++) {
+            list.add(new String[]{rows[row][0], rows[row][1], rows[row][2]});
+            for (int c = 0; c < cases; c++) {
+                matrix.set(row, c, String.valueOf(rows[row][3].charAt(c)));
+            }
+        }
+        return TestPlan.compile(new ChecklistSheet("Sheet", "ID", "Title", list, caseNumbers, matrix, 0, 0));
+    }
+
+    @Test
+    public void independentCasesAreSeparateChains() {
+        TestPlan plan = plan(3,
+                new String[]{"Open", "browser", "chrome", "YYY"},
+                new String[]{"", "url", "http://localhost/", "YYY"},
+                new String[]{"Click", "by_id", "a", "Y-Y"});
+        List<int[]> chains = CaseScheduler.chains(plan);
+        assertEquals(3, chains.size());
+        assertArrayEquals(new int[]{0}, chains.get(0));
+        assertArrayEquals(new int[]{1}, chains.get(1));
+        assertArrayEquals(new int[]{2}, chains.get(2));
+        assertTrue(CaseScheduler.switchTargets(plan).isEmpty());
+    }
+
+    @Test
+    public void caseWithoutOpenContinuesThePreviousCase() {
+        // case 2 starts with Click (the browser of case 1), case 3 re-opens the current browser (Open without browser)
+        TestPlan plan = plan(4,
+                new String[]{"Open", "browser", "chrome", "Y--Y"},
+                new String[]{"", "url", "http://localhost/", "Y-YY"},
+                new String[]{"Click", "by_id", "a", "YYYY"});
+        List<int[]> chains = CaseScheduler.chains(plan);
+        assertEquals(2, chains.size());
+        assertArrayEquals(new int[]{0, 1, 2}, chains.get(0));
+        assertArrayEquals(new int[]{3}, chains.get(1));
+    }
+
+    @Test
+    public void firstCaseWithoutOpenIsAChain() {
+        TestPlan plan = plan(2,
+                new String[]{"Open", "browser", "chrome", "-Y"},
+                new String[]{"Click", "by_id", "a", "YY"});
+        List<int[]> chains = CaseScheduler.chains(plan);
+        assertEquals(2, chains.size());
+        assertArrayEquals(new int[]{0}, chains.get(0));
+        assertArrayEquals(new int[]{1}, chains.get(1));
+    }
+
+    @Test
+    public void switchBrowserJoinsTheOpeningCase() {
+        // case 4 switches to the browser opened by case 2
+        TestPlan plan = plan(4,
+                new String[]{"Open", "browser", "chrome", "YYYY"},
+                new String[]{"SwitchBrowser", "opened_by", "002", "---Y"});
+        List<int[]> chains = CaseScheduler.chains(plan);
+        assertEquals(3, chains.size());
+        assertArrayEquals(new int[]{0}, chains.get(0));
+        assertArrayEquals(new int[]{1, 3}, chains.get(1));
+        assertArrayEquals(new int[]{2}, chains.get(2));
+        assertEquals(new HashSet<>(Arrays.asList("002")), CaseScheduler.switchTargets(plan));
+    }
+
+    @Test
+    public void switchBrowserToAnUnknownCaseIsIgnored() {
+        TestPlan plan = plan(2,
+                new String[]{"Open", "browser", "chrome", "YY"},
+                new String[]{"SwitchBrowser", "opened_by", "009", "-Y"});
+        assertEquals(2, CaseScheduler.chains(plan).size());
+        assertEquals(new HashSet<>(Arrays.asList("009")), CaseScheduler.switchTargets(plan));
+    }
+
+    @Test
+    public void unionsAreTransitive() {
+        // 1 <- 3 (opened_by), 2 <- 3 (no Open), so 1, 2 and 3 are a chain
+        TestPlan plan = plan(4,
+                new String[]{"Open", "browser", "chrome", "YY-Y"},
+                new String[]{"SwitchBrowser", "opened_by", "001", "--Y-"});
+        List<int[]> chains = CaseScheduler.chains(plan);
+        assertEquals(2, chains.size());
+        assertArrayEquals(new int[]{0, 1, 2}, chains.get(0));
+        assertArrayEquals(new int[]{3}, chains.get(1));
+    }
+
+}
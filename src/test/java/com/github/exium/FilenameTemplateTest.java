@@ -0,0 +1,27 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FilenameTemplateTest {
+
+    private static String format(String origin) {
+        return FilenameTemplate.compile(origin).format("001", "SHEET-1", "Title");
+    }
+
+    @Test
+    public void tagsAreReplacedIgnoringCase() {
+        assertEquals("shots/SHEET-1_001_Title.png", format("shots/<ID>_<caseno>_<Title>.png"));
+        assertEquals("<IDX><ID", format("<IDX><ID"));
+        assertEquals("plain.png", format("plain.png"));
+    }
+
+    @Test
+    public void textWhoseUpperCaseIsLongerIsKept() {
+        // "ß".toUpperCase() is "SS" and "ﬁ".toUpperCase() is "FI"
+        assertEquals("Straße/ﬁle_SHEET-1_001.png", format("Straße/ﬁle_<id>_<CASENO>.png"));
+        assertEquals("ßß001ß", format("ßß<caseno>ß"));
+    }
+
+}
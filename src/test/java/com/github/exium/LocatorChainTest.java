@@ -0,0 +1,143 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LocatorChainTest {
+
+    private static List<String[]> params(String... values) {
+        List<String[]> list = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 2) {
+            list.add(new String[]{values[i], values[i + 1]});
+        }
+        return list;
+    }
+
+    /**
+     * Executor which returns the given result (or throws it) and keeps the arguments.
+     */
+    private static final class FakeExecutor implements JavascriptExecutor {
+        private final Object result;
+        private Object[] args;
+
+        FakeExecutor(Object result) {
+            this.result = result;
+        }
+
+        @Override
+        public Object executeScript(String script, Object... args) {
+            this.args = args;
+            if (result instanceof RuntimeException) {
+                throw (RuntimeException)result;
+            }
+            return result;
+        }
+
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void otherParametersAreIgnored() {
+        LocatorChain chain = LocatorChain.of(params("by_id", "main", "value", "abc", "by_class", "item", "index", "2"));
+        assertEquals(2, chain.size());
+        assertArrayEquals(new String[]{"by_id", "main"}, chain.get(0));
+        assertArrayEquals(new String[]{"by_class", "item"}, chain.get(1));
+        assertEquals(chain.key(), LocatorChain.of(params("by_id", "main", "by_class", "item")).key());
+    }
+
+    @Test
+    public void keyDependsOnTypeValueAndOrder() {
+        String key = LocatorChain.of(params("by_id", "a", "by_name", "b")).key();
+        assertNotEquals(key, LocatorChain.of(params("by_name", "b", "by_id", "a")).key());
+        assertNotEquals(key, LocatorChain.of(params("by_id", "a", "by_class", "b")).key());
+        assertNotEquals(key, LocatorChain.of(params("by_id", "a", "by_name", "B")).key());
+        assertNotEquals(key, LocatorChain.of(params("by_id", "a")).key());
+    }
+
+    @Test
+    public void keyIsNotConfusedBySeparatorsInValues() {
+        String[] separators = {"\u0000", ":", ";", "1:", "\"", "\\"};
+        for (String separator : separators) {
+            String two = LocatorChain.of(params("by_id", "a", "by_name", "b")).key();
+            String one = LocatorChain.of(params("by_id", "a" + separator + "by_name" + separator + "b")).key();
+            assertNotEquals(separator, two, one);
+        }
+        assertNotEquals(LocatorChain.of(params("by_xpath", "//a[@x=';']", "by_id", "b")).key(),
+                LocatorChain.of(params("by_xpath", "//a[@x=']", "by_id", "b']")).key());
+    }
+
+    @Test
+    public void valuesArePassedToTheScriptAsTheyAre() {
+        // quotes and backslashes are escaped in the browser (by the script), not in Java
+        List<String[]> locators = params("by_id", "a\"b\\c", "by_class", "item");
+        WebElement element = new RemoteWebElement();
+        FakeExecutor executor = new FakeExecutor(Collections.singletonList(element));
+        String[] last = new String[2];
+
+        List<WebElement> found = LocatorChain.of(locators).find(executor, last);
+
+        assertEquals(1, found.size());
+        assertSame(element, found.get(0));
+        assertArrayEquals(new String[]{"by_class", "item"}, last);
+        @SuppressWarnings("unchecked")
+        List<String[]> passed = (List<String[]>)executor.args[0];
+        assertArrayEquals(new String[]{"by_id", "a\"b\\c"}, passed.get(0));
+    }
+
+    @Test
+    public void indexOfLocatorWhichFoundNothingIsReported() {
+        String[] last = new String[2];
+        List<WebElement> found = LocatorChain.of(params("by_id", "main", "by_class", "item", "by_link_text", "next"))
+                .find(new FakeExecutor(1L), last);
+        assertNull(found);
+        assertArrayEquals(new String[]{"by_class", "item"}, last);
+    }
+
+    @Test
+    public void unexpectedResultsAreRejected() {
+        LocatorChain chain = LocatorChain.of(params("by_id", "main", "by_class", "item"));
+        for (Object result : Arrays.asList(null, "text", Collections.singletonList("text"))) {
+            try {
+                chain.find(new FakeExecutor(result), new String[2]);
+                fail(String.valueOf(result));
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void compoundClassNamesAreRejectedByTheScript() {
+        // the script fails for "a b" as By.className does, and the failure reaches the caller
+        // (which finds by each locator instead)
+        assertTrue(LocatorChain.RESOLVE_FUNCTION.contains(
+                "if (/\\s/.test(value)) { throw new Error('Compound class names not permitted'); }"));
+        WebDriverException error = new WebDriverException("Compound class names not permitted");
+        try {
+            LocatorChain.of(params("by_id", "main", "by_class", "a b")).find(new FakeExecutor(error), new String[2]);
+            fail();
+        } catch (WebDriverException e) {
+            assertSame(error, e);
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+public class ResultWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private int flushCases;
+
+    @Before
+    public void setUp() {
+        TestSupport.init();
+        flushCases = Exium.conf.getIntProperty("excel.common.flush_cases");
+        assertTrue(flushCases > 1);
+    }
+
+    private static Workbook checklist() {
+        Workbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet("Sheet");
+        sheet.createRow(0).createCell(0).setCellValue("Command");
+        return wb;
+    }
+
+    private File save(Workbook wb, String name) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            wb.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * Read a cell of the file.
+     * @return value (null if the cell doesn't exist).
+     */
+    private static String cell(File file, String sheetName, int row, int col) throws Exception {
+        try (InputStream in = Files.newInputStream(file.toPath()); Workbook wb = WorkbookFactory.create(in)) {
+            Row r = wb.getSheet(sheetName).getRow(row);
+            Cell c = (r != null) ? r.getCell(col) : null;
+            return (c != null) ? c.getStringCellValue() : null;
+        }
+    }
+
+    /**
+     * Wait until the cell of the file has the value (written by the background writer).
+     */
+    private static void awaitCell(File file, int row, int col, String value) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!value.equals(cell(file, "Sheet", row, col))) {
+            assertTrue("not flushed: " + value, System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void resultsAreFlushedAfterCasesOfStreamingMode() throws Exception {
+        File test = save(checklist(), "test.xlsx");
+        File result = new File(folder.getRoot(), "result.xlsx");
+        ResultWriter writer = new ResultWriter(test.getPath(), result.getPath());
+        assertTrue(writer.open());
+        try {
+            assertEquals("Command", cell(result, "Sheet", 0, 0));
+
+            writer.record("Sheet", 1, 2, "OK");
+            writer.record("Sheet", 1, 3, "NG");
+            writer.record("Unknown", 1, 2, "OK");
+            for (int i = 1; i < flushCases; i++) {
+                writer.completeCase();
+            }
+            Thread.sleep(200);
+            assertNull(cell(result, "Sheet", 1, 2));
+
+            writer.completeCase();
+            awaitCell(result, 1, 3, "NG");
+            assertEquals("OK", cell(result, "Sheet", 1, 2));
+
+            writer.record("Sheet", 2, 2, "OK");
+        } finally {
+            writer.close();
+        }
+        assertEquals("OK", cell(result, "Sheet", 2, 2));
+        assertEquals("Command", cell(test.getAbsoluteFile(), "Sheet", 0, 0));
+        assertNull(cell(test, "Sheet", 1, 2));
+        assertFalse(new File(result.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void resultsAreFlushedAfterCasesOfWorkbook() throws Exception {
+        Workbook wb = checklist();
+        File result = new File(folder.getRoot(), "result.xlsx");
+        ResultWriter writer = new ResultWriter(wb, result.getPath());
+        assertTrue(writer.open());
+        try {
+            assertEquals("Command", cell(result, "Sheet", 0, 0));
+
+            writer.record("Sheet", 5, 4, "OK");
+            for (int i = 0; i < flushCases; i++) {
+                writer.completeCase();
+            }
+            awaitCell(result, 5, 4, "OK");
+
+            writer.record("Sheet", 5, 5, "NG");
+        } finally {
+            writer.close();
+        }
+        assertEquals("NG", cell(result, "Sheet", 5, 5));
+    }
+
+    @Test
+    public void marksOfInlineStringsAreReplaced() throws Exception {
+        // SXSSF writes strings inline (<is>), not to the shared strings
+        SXSSFWorkbook sxssf = new SXSSFWorkbook();
+        Row row = sxssf.createSheet("Sheet").createRow(1);
+        row.createCell(2).setCellValue("Y");
+        row.createCell(3).setCellValue("●");
+        File test = save(sxssf, "inline.xlsx");
+        sxssf.dispose();
+        File result = new File(folder.getRoot(), "result.xlsx");
+        ResultWriter writer = new ResultWriter(test.getPath(), result.getPath());
+        assertTrue(writer.open());
+        writer.record("Sheet", 1, 2, "NG");
+        writer.record("Sheet", 1, 3, "○");
+        writer.close();
+        assertEquals("NG", cell(result, "Sheet", 1, 2));
+        assertEquals("○", cell(result, "Sheet", 1, 3));
+    }
+
+    @Test
+    public void failedFlushLeavesThePreviousFile() throws Exception {
+        File test = save(checklist(), "test.xlsx");
+        File result = new File(folder.getRoot(), "result.xlsx");
+        ResultWriter writer = new ResultWriter(test.getPath(), result.getPath());
+        assertTrue(writer.open());
+        try {
+            writer.record("Sheet", 1, 2, "OK");
+            for (int i = 0; i < flushCases; i++) {
+                writer.completeCase();
+            }
+            awaitCell(result, 1, 2, "OK");
+            byte[] flushed = Files.readAllBytes(result.toPath());
+
+            // the temporary file can't be written (as if the process stopped while writing it)
+            File tmp = new File(result.getPath() + ".tmp");
+            assertTrue(tmp.mkdir());
+            Files.createFile(new File(tmp, "busy").toPath());
+            writer.record("Sheet", 1, 3, "NG");
+            assertFalse(writer.write());
+
+            assertArrayEquals(flushed, Files.readAllBytes(result.toPath()));
+            assertEquals("OK", cell(result, "Sheet", 1, 2));
+            assertNull(cell(result, "Sheet", 1, 3));
+
+            // the next flush replaces a stale temporary file
+            Files.delete(new File(tmp, "busy").toPath());
+            Files.delete(tmp.toPath());
+            Files.write(tmp.toPath(), new byte[]{'P', 'K', 3});
+            writer.record("Sheet", 1, 4, "OK");
+            assertTrue(writer.write());
+            assertEquals("OK", cell(result, "Sheet", 1, 4));
+            assertFalse(tmp.exists());
+        } finally {
+            writer.close();
+        }
+    }
+
+}
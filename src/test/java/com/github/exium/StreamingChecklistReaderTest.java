@@ -0,0 +1,205 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The streaming (SAX) reader reads the same contents as the workbook (DOM) reader of ExcelParser.
+ */
+public class StreamingChecklistReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() {
+        TestSupport.init();
+    }
+
+    @Test
+    public void sampleChecklistIsReadAsWorkbook() throws Exception {
+        File file = new File("src/test/Exium_Test_for_Mac_JP.xlsm");
+        assertTrue(file.isFile());
+        assertEquals(1, assertParity(file));
+    }
+
+    @Test
+    public void namesDatesAndEarlyStopAreReadAsWorkbook() throws Exception {
+        File file = folder.newFile("checklist.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            // 1904 date system
+            wb.getCTWorkbook().getWorkbookPr().setDate1904(true);
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy/mm/dd hh:mm"));
+            writeSheet(wb.createSheet("MasterData"), null);
+            writeSheet(wb.createSheet("First"), dateStyle);
+            writeSheet(wb.createSheet("Second"), dateStyle);
+            wb.getSheet("Second").getRow(0).createCell(2).setCellValue("ID of the sheet");
+
+            // names of the workbook (the first sheet), and a name in the scope of "Second"
+            name(wb, "ID", -1, "First!$B$1");
+            name(wb, "TITLE", -1, "First!$B$30");
+            name(wb, "NO", -1, "First!$A$4");
+            name(wb, "COMMAND", -1, "First!$B$4");
+            name(wb, "PARAMETER", -1, "First!$C$4");
+            name(wb, "VALUE", -1, "First!$D$4");
+            name(wb, "CASENUMBER", -1, "First!$E$4");
+            name(wb, "ID", wb.getSheetIndex("Second"), "Second!$C$1");
+            try (OutputStream out = new FileOutputStream(file)) {
+                wb.write(out);
+            }
+        }
+
+        assertEquals(2, assertParity(file));
+
+        StreamingChecklistReader reader = new StreamingChecklistReader(file.getPath());
+        assertTrue(reader.open());
+        try {
+            assertTrue(reader.nextSheet());
+            ChecklistSheet first = reader.read();
+            assertEquals("First", first.getName());
+            assertEquals("ID-1", first.getID());
+            // the title is below the scenario, so the rest of the sheet is read until it
+            assertEquals("Title below", first.getTitle());
+            // the scenario ends at the blank number (the rows after it aren't read)
+            assertEquals(4, first.getRows().size());
+            assertArrayEquals(new String[]{"", "text", "2000-01-02 03:04:00"}, first.getRows().get(3));
+            assertEquals(3, first.getCaseNumbers().size());
+            assertEquals("003", first.getCaseNumbers().get(2));
+            assertTrue(first.getMatrix().isJapanese(0, 0));
+            assertTrue(first.getMatrix().isChecked(1, 1));
+
+            assertTrue(reader.nextSheet());
+            assertEquals("ID of the sheet", reader.read().getID());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void name(Workbook wb, String tag, int sheetIndex, String formula) {
+        Name name = wb.createName();
+        if (sheetIndex >= 0) {
+            name.setSheetIndex(sheetIndex);
+        }
+        name.setNameName(tag);
+        name.setRefersToFormula(formula);
+    }
+
+    private static void writeSheet(Sheet sheet, CellStyle dateStyle) {
+        sheet.createRow(0).createCell(0).setCellValue("ID");
+        sheet.getRow(0).createCell(1).setCellValue("ID-1");
+        Row header = sheet.createRow(3);
+        String[] headers = {"No", "Command", "Parameter", "Value", "CaseNo"};
+        for (int i = 0; i < headers.length; i++) {
+            header.createCell(i).setCellValue(headers[i]);
+        }
+        Row cases = sheet.createRow(4);
+        for (int i = 0; i < 3; i++) {
+            cases.createCell(4 + i).setCellValue(i + 1);
+        }
+        String[][] rows = {
+                {"Open", "browser", "chrome", "●", "●", ""},
+                {"", "url", "http://localhost/", "Y", "Y", "○"},
+                {"Input", "by_id", "name", "", "*", "OK"},
+                {"", "text", null, "y", "", "×"}};
+        for (int r = 0; r < rows.length; r++) {
+            Row row = sheet.createRow(5 + r);
+            row.createCell(0).setCellValue(r + 1);
+            for (int c = 0; c < rows[r].length; c++) {
+                if (rows[r][c] != null) {
+                    row.createCell(1 + c).setCellValue(rows[r][c]);
+                }
+            }
+        }
+        if (dateStyle != null) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(2000, Calendar.JANUARY, 2, 3, 4);
+            sheet.getRow(8).createCell(3).setCellValue(calendar.getTime());
+            sheet.getRow(8).getCell(3).setCellStyle(dateStyle);
+        }
+        // after the end of the scenario (blank number)
+        Row after = sheet.createRow(11);
+        after.createCell(0).setCellValue(7);
+        after.createCell(1).setCellValue("Click");
+        after.createCell(4).setCellValue("Y");
+        sheet.createRow(29).createCell(0).setCellValue("TITLE");
+        sheet.getRow(29).createCell(1).setCellValue("Title below");
+    }
+
+    /**
+     * Compare the contents of each sheet read by both readers.
+     * @return number of compared sheets.
+     */
+    private int assertParity(File file) throws Exception {
+        List<ChecklistSheet> expected = new ArrayList<>();
+        ExcelParser parser = new ExcelParser(file.getPath(), new File(folder.getRoot(), "result.xlsx").getPath(), 1, null);
+        try {
+            assertTrue(parser.openWorkbook(file));
+            for (Sheet sheet : parser.getWorkbook()) {
+                if (!sheet.getSheetName().equalsIgnoreCase("MasterData")) {
+                    expected.add(parser.readSheet(sheet));
+                }
+            }
+        } finally {
+            parser.terminate();
+        }
+
+        StreamingChecklistReader reader = new StreamingChecklistReader(file.getPath());
+        assertTrue(reader.open());
+        int count = 0;
+        try {
+            while (reader.nextSheet()) {
+                ChecklistSheet dom = expected.get(count++);
+                ChecklistSheet sax = reader.read();
+                assertNotNull(dom);
+                assertNotNull(sax);
+                assertSheet(dom, sax);
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected.size(), count);
+        return count;
+    }
+
+    private static void assertSheet(ChecklistSheet dom, ChecklistSheet sax) {
+        String name = dom.getName();
+        assertEquals(name, dom.getName(), sax.getName());
+        assertEquals(name, dom.getID(), sax.getID());
+        assertEquals(name, dom.getTitle(), sax.getTitle());
+        assertEquals(name, dom.getRowStart(), sax.getRowStart());
+        assertEquals(name, dom.getColStart(), sax.getColStart());
+        assertEquals(name, dom.getCaseNumbers(), sax.getCaseNumbers());
+        assertEquals(name, dom.getRows().size(), sax.getRows().size());
+        for (int row = 0; row < dom.getRows().size(); row++) {
+            assertArrayEquals(name + " row " + row, dom.getRows().get(row), sax.getRows().get(row));
+            for (int c = 0; c < dom.getCaseNumbers().size(); c++) {
+                String cell = name + " row " + row + " case " + c;
+                assertEquals(cell, dom.getMatrix().isChecked(row, c), sax.getMatrix().isChecked(row, c));
+                assertEquals(cell, dom.getMatrix().isJapanese(row, c), sax.getMatrix().isJapanese(row, c));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.github.exium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestPlanTest {
+
+    /**
+     * Create a sheet from rows of {command, parameter, value} (2 cases, nothing checked).
+     */
+    static ChecklistSheet sheet(String[]... rows) {
+        List<String[]> list = new ArrayList<>(Arrays.asList(rows));
+        return new ChecklistSheet("Sheet", "ID", "Title", list, Arrays.asList("001", "002"), new CaseMatrix(2), 5, 4);
+    }
+
+    @Test
+    public void rowsAreGroupedUntilNextCommand() {
+        TestPlan plan = TestPlan.compile(sheet(
+                new String[]{"Open", "browser", "chrome"},
+                new String[]{"", "url", "http://localhost/"},
+                new String[]{"Input", "by_id", "name"},
+                new String[]{"", "text", "a"},
+                new String[]{"", "", "b"},
+                new String[]{"Wait", "milliseconds", "0"}));
+        TestCommand[] commands = plan.getCommands();
+        assertEquals(3, commands.length);
+
+        assertEquals(CommandType.OPEN, commands[0].getType());
+        assertEquals(0, commands[0].getRowStart());
+        assertEquals(2, commands[0].getRowCount());
+        assertArrayEquals(new String[]{"url", "http://localhost/"}, commands[0].getParameter(1));
+
+        assertEquals(CommandType.INPUT, commands[1].getType());
+        assertEquals(2, commands[1].getRowStart());
+        assertEquals(3, commands[1].getRowCount());
+        // blank parameter is the same as the above row
+        assertArrayEquals(new String[]{"text", "b"}, commands[1].getParameter(2));
+
+        assertEquals(CommandType.WAIT, commands[2].getType());
+        assertEquals(5, commands[2].getRowStart());
+        assertEquals(1, commands[2].getRowCount());
+        assertEquals(3, plan.getMaxRowCount());
+    }
+
+    @Test
+    public void namesAreCaseInsensitive() {
+        TestPlan plan = TestPlan.compile(sheet(
+                new String[]{"SWITCHBROWSER", "CaseNo", "001"},
+                new String[]{"capture", "FileName", "a.png"}));
+        assertEquals(CommandType.SWITCH_BROWSER, plan.getCommands()[0].getType());
+        assertEquals("switchbrowser", plan.getCommands()[0].getName());
+        assertArrayEquals(new String[]{"caseno", "001"}, plan.getCommands()[0].getParameter(0));
+        assertEquals(CommandType.CAPTURE, plan.getCommands()[1].getType());
+        // file names of "Capture" are compiled once
+        assertSame(plan.getFilenameTemplate("a.png"), plan.getFilenameTemplate("a.png"));
+    }
+
+    @Test
+    public void unknownCommandsAreUnknown() {
+        TestPlan plan = TestPlan.compile(sheet(
+                new String[]{"Opne", "browser", "chrome"},
+                new String[]{"確認", "by_id", "x"}));
+        assertEquals(CommandType.UNKNOWN, plan.getCommands()[0].getType());
+        assertEquals("opne", plan.getCommands()[0].getName());
+        assertEquals(CommandType.UNKNOWN, plan.getCommands()[1].getType());
+    }
+
+    @Test
+    public void emptySheetHasNoCommands() {
+        TestPlan plan = TestPlan.compile(sheet());
+        assertEquals(0, plan.getCommands().length);
+        assertEquals(2, plan.getCaseCount());
+        assertEquals("002", plan.getCaseNumber(1));
+        assertEquals(5, plan.getRowStart());
+        assertEquals(4, plan.getColStart());
+    }
+
+    @Test
+    public void fillRunsAreInputAndSelect() {
+        TestPlan plan = TestPlan.compile(sheet(
+                new String[]{"Open", "browser", "chrome"},      // 0
+                new String[]{"Input", "by_id", "a"},            // 1: run 1-3
+                new String[]{"", "text", "a"},
+                new String[]{"Select", "by_id", "b"},           // 2
+                new String[]{"", "text", "b"},
+                new String[]{"Input", "by_id", "c"},            // 3
+                new String[]{"", "text", "c"},
+                new String[]{"Click", "by_id", "d"},            // 4
+                new String[]{"Input", "by_id", "e"},            // 5: single
+                new String[]{"", "text", "e"},
+                new String[]{"Wait", "milliseconds", "0"},      // 6
+                new String[]{"Select", "by_id", "f"},           // 7: run 7-8 (the end of the sheet)
+                new String[]{"", "text", "f"},
+                new String[]{"Input", "by_id", "g"},            // 8
+                new String[]{"", "text", "g"}));
+        assertEquals(9, plan.getCommands().length);
+        int[] expected = {1, 4, 4, 4, 5, 6, 7, 9, 9};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("command " + i, expected[i], plan.getFillRunEnd(i));
+        }
+    }
+
+}
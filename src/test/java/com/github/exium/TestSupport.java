@@ -0,0 +1,24 @@
+package com.github.exium;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Initialize the globals of Exium for tests (default configuration, logs to the console).
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    static synchronized void init() {
+        if (Exium.conf != null) {
+            return;
+        }
+        Exium.rb = ResourceBundle.getBundle("Messages", Locale.JAPAN);
+        Exium.conf = new Configurator("");
+        Exium.logger = new Logger("");
+        Exium.metrics = new Metrics();
+    }
+
+}